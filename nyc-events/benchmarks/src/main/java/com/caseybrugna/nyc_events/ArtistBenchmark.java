@@ -0,0 +1,81 @@
+package com.caseybrugna.nyc_events;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the string building Artist does when artists are stored and
+ * logged. Each operation handles every artist in fixtures/artists.tsv, plus
+ * one artist without a Spotify profile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ArtistBenchmark {
+    private Artist[] artists;
+
+    /**
+     * Builds the artists from the profiles in the fixture.
+     */
+    @Setup
+    public void setUp() {
+        List<Artist> loaded = new ArrayList<>();
+        for (String row : Benchmarks.readFixture("artists.tsv")) {
+            if (row.startsWith("#")) {
+                continue;
+            }
+            String[] fields = row.split("\t", -1);
+            String[] topTrackIDs = split(fields[4]);
+            ArtistProfile profile = new ArtistProfile(fields[1], fields[0], split(fields[3]),
+                    Integer.parseInt(fields[2]), "https://open.spotify.com/artist/" + fields[1], topTrackIDs,
+                    topTrackIDs);
+            loaded.add(new Artist(fields[0], profile));
+        }
+        loaded.add(new Artist("Unknown Local DJ", (ArtistProfile) null));
+        artists = loaded.toArray(new Artist[0]);
+    }
+
+    private static String[] split(String field) {
+        return field.isEmpty() ? new String[0] : field.split(";");
+    }
+
+    /**
+     * Joins each artist's genres as stored in the Artists table.
+     *
+     * @param blackhole Consumes the results.
+     */
+    @Benchmark
+    public void getArtistGenresAsString(Blackhole blackhole) {
+        for (Artist artist : artists) {
+            blackhole.consume(artist.getArtistGenresAsString());
+        }
+    }
+
+    /**
+     * Renders each artist as logged by the pipeline.
+     *
+     * @param blackhole Consumes the results.
+     */
+    @Benchmark
+    public void artistToString(Blackhole blackhole) {
+        for (Artist artist : artists) {
+            blackhole.consume(artist.toString());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.caseybrugna.nyc_events;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so that every result is
+ * reported with its allocation rate (gc.alloc.rate.norm is bytes allocated
+ * per operation). Any JMH command line options, such as a benchmark name
+ * pattern, are passed through.
+ * <p>
+ * Install nyc-events first ("mvn install" in nyc-events), then build and run
+ * from this module with "mvn package" and
+ * "java -jar target/benchmarks.jar [pattern]".
+ */
+public class Benchmarks {
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args JMH command line options.
+     * @throws CommandLineOptionException if the options are not valid
+     * @throws RunnerException            if a benchmark fails
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * Reads a fixture checked in under src/main/resources/fixtures.
+     *
+     * @param name The file name of the fixture.
+     * @return The lines of the fixture.
+     */
+    static List<String> readFixture(String name) {
+        InputStream in = Benchmarks.class.getResourceAsStream("/fixtures/" + name);
+        if (in == null) {
+            throw new IllegalStateException("Missing fixture: " + name);
+        }
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read fixture " + name, e);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,109 @@
+package com.caseybrugna.nyc_events;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the parsing Event does for every scraped listing. Each operation
+ * handles every row of fixtures/events.tsv, so per-operation times and
+ * allocations are for the whole fixture.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EventBenchmark {
+    private String[] names;
+    private String[] dateStrings;
+    private java.sql.Date[] dates;
+    private String[] locations;
+    private String[] prices;
+    private String[] artistsStrings;
+
+    /**
+     * Loads the scraped listings from the fixture.
+     */
+    @Setup
+    public void setUp() {
+        List<String> rows = Benchmarks.readFixture("events.tsv");
+        rows.removeIf(row -> row.startsWith("#"));
+        int count = rows.size();
+        names = new String[count];
+        dateStrings = new String[count];
+        dates = new java.sql.Date[count];
+        locations = new String[count];
+        prices = new String[count];
+        artistsStrings = new String[count];
+        for (int i = 0; i < count; i++) {
+            String[] fields = rows.get(i).split("\t", -1);
+            names[i] = fields[0];
+            dateStrings[i] = fields[1];
+            dates[i] = Event.parseDate(fields[1]);
+            locations[i] = fields[2];
+            prices[i] = fields[3];
+            artistsStrings[i] = fields[6];
+        }
+    }
+
+    /**
+     * Parses the listing dates, such as "Fri, Jul 14".
+     *
+     * @param blackhole Consumes the results.
+     */
+    @Benchmark
+    public void parseDate(Blackhole blackhole) {
+        for (String date : dateStrings) {
+            blackhole.consume(Event.parseDate(date));
+        }
+    }
+
+    /**
+     * Parses the listing prices, such as "$25.00" or "Free".
+     *
+     * @param blackhole Consumes the results.
+     */
+    @Benchmark
+    public void parseTicketPrice(Blackhole blackhole) {
+        for (String price : prices) {
+            blackhole.consume(TicketPrice.parse(price));
+        }
+    }
+
+    /**
+     * Splits the listing lineups into artist names.
+     *
+     * @param blackhole Consumes the results.
+     */
+    @Benchmark
+    public void parseArtistsString(Blackhole blackhole) {
+        for (String artistsString : artistsStrings) {
+            blackhole.consume(Event.parseArtistsString(artistsString));
+        }
+    }
+
+    /**
+     * Generates the event IDs from name, date and location.
+     *
+     * @param blackhole Consumes the results.
+     */
+    @Benchmark
+    public void generateEventID(Blackhole blackhole) {
+        for (int i = 0; i < names.length; i++) {
+            blackhole.consume(Event.generateEventID(names[i], dates[i], locations[i]));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.caseybrugna.nyc_events;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+import org.openqa.selenium.ImmutableCapabilities;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks extracting the event cards from a rendered Dice browse page, as
+ * DiceScraper does with the page source once the browser has scrolled through
+ * the listing. The saved page (fixtures/browse-page-rendered.html) holds one
+ * screen of cards; they are repeated until the page holds CARDS of them, the
+ * size of a fully scrolled listing.
+ * <p>
+ * For comparison, the cards are also read through a RemoteWebDriver, once
+ * field by field as the scraper used to (a findElement and a getText or
+ * getAttribute per field, each a round trip to the driver) and once with a
+ * single getPageSource. The driver is a StubWebDriverServer serving the same
+ * page, so both sides pay the WebDriver protocol but not a real browser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EventCardParseBenchmark {
+    private static final String BROWSE_URL = "https://dice.fm/browse/new-york/music/dj";
+    private static final String CARD_SELECTOR = "div.EventCard__Event-sc-95ckmb-1";
+    private static final int CARDS = 500;
+
+    private String html;
+    private Document page;
+    private StubWebDriverServer driverServer;
+    private WebDriver driver;
+
+    /**
+     * Builds the page, starts a driver for it and checks that every card on it
+     * is still extracted, so the benchmark does not silently measure failed
+     * lookups.
+     *
+     * @throws IOException if the stub driver cannot be started
+     */
+    @Setup
+    public void setUp() throws IOException {
+        Document saved = Jsoup.parse(String.join("\n", Benchmarks.readFixture("browse-page-rendered.html")),
+                BROWSE_URL);
+        Elements savedCards = saved.select(CARD_SELECTOR);
+        if (savedCards.isEmpty()) {
+            throw new IllegalStateException("The card selector no longer matches the saved page");
+        }
+        Element list = savedCards.first().parent();
+        for (int i = savedCards.size(); i < CARDS; i++) {
+            list.appendChild(savedCards.get(i % savedCards.size()).clone());
+        }
+        html = saved.outerHtml();
+        page = Jsoup.parse(html, BROWSE_URL);
+
+        driverServer = new StubWebDriverServer(page);
+        driver = new RemoteWebDriver(driverServer.getUrl(), new ImmutableCapabilities("browserName", "stub"));
+
+        checkCards(DiceScraper.parseEventCards(page));
+        checkCards(perFieldWebDriver());
+    }
+
+    private static void checkCards(List<EventCard> cards) {
+        if (cards.size() != CARDS) {
+            throw new IllegalStateException("Extracted " + cards.size() + " of " + CARDS + " cards");
+        }
+    }
+
+    /**
+     * Ends the driver session and stops the stub driver.
+     */
+    @TearDown
+    public void tearDown() {
+        driver.quit();
+        driverServer.close();
+    }
+
+    /**
+     * Extracts the cards from the already parsed page.
+     *
+     * @return The cards.
+     */
+    @Benchmark
+    public List<EventCard> extractCards() {
+        return DiceScraper.parseEventCards(page);
+    }
+
+    /**
+     * Parses the page source with Jsoup and extracts the cards, the whole of
+     * the work done after the browser hands over the page.
+     *
+     * @return The cards.
+     */
+    @Benchmark
+    public List<EventCard> parseAndExtractCards() {
+        return DiceScraper.parseEventCards(Jsoup.parse(html, BROWSE_URL));
+    }
+
+    /**
+     * Takes the page source from the driver in one call and extracts the cards
+     * from it, as DiceScraper does now.
+     *
+     * @return The cards.
+     */
+    @Benchmark
+    public List<EventCard> pageSourceWebDriver() {
+        return DiceScraper.parseEventCards(Jsoup.parse(driver.getPageSource(), driver.getCurrentUrl()));
+    }
+
+    /**
+     * Reads every field of every card with its own driver calls, as
+     * DiceScraper did before it switched to the page source.
+     *
+     * @return The cards.
+     */
+    @Benchmark
+    public List<EventCard> perFieldWebDriver() {
+        List<EventCard> cards = new ArrayList<>();
+        for (WebElement card : driver.findElements(By.cssSelector(CARD_SELECTOR))) {
+            String eventName = card.findElement(By.cssSelector("div.styles__Title-mwubo3-6")).getText();
+            String date = card.findElement(By.cssSelector("div.styles__Date-mwubo3-8")).getText();
+            String location = card.findElement(By.cssSelector("div.styles__Venue-mwubo3-7")).getText();
+            String price = card.findElement(By.cssSelector("div.styles__Price-mwubo3-9")).getText();
+            String link = card.findElement(By.cssSelector("a.styles__EventCardLink-mwubo3-5")).getAttribute("href");
+            String imageUrl = card.findElement(By.cssSelector("img.styles__Image-mwubo3-3")).getAttribute("src");
+            cards.add(new EventCard(eventName, Event.parseDate(date), location, price, link, imageUrl));
+        }
+        return cards;
+    }
+}
@@ -0,0 +1,125 @@
+package com.caseybrugna.nyc_events;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the filter queries EventStore answers for the read API, over a
+ * store of synthetic events; see SyntheticEvents. Each operation runs one
+ * query, cycling through a fixed set of filter values drawn with the same
+ * skew as the events, and returns at most a page of results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EventStoreBenchmark {
+    private static final int QUERIES = 1024;
+    private static final int PAGE_SIZE = 50;
+
+    @Param({ "10000", "100000" })
+    private int events;
+
+    private EventStore store;
+    private LocalDate[] froms;
+    private String[] venues;
+    private String[] genres;
+    private String[] artistIDs;
+    private int next;
+
+    /**
+     * Fills the store and draws the filter values.
+     */
+    @Setup
+    public void setUp() {
+        store = new EventStore();
+        store.replace(SyntheticEvents.generate(events, 42));
+
+        Random random = new Random(7);
+        LocalDate today = LocalDate.now();
+        froms = new LocalDate[QUERIES];
+        venues = new String[QUERIES];
+        genres = new String[QUERIES];
+        artistIDs = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            froms[i] = today.plusDays(random.nextInt(330));
+            venues[i] = SyntheticEvents.venue(SyntheticEvents.skewed(random, SyntheticEvents.VENUES));
+            genres[i] = SyntheticEvents.genre(SyntheticEvents.skewed(random, SyntheticEvents.GENRES));
+            artistIDs[i] = SyntheticEvents.artistID(SyntheticEvents.skewed(random, SyntheticEvents.ARTISTS));
+        }
+    }
+
+    private int nextQuery() {
+        next = (next + 1) & (QUERIES - 1);
+        return next;
+    }
+
+    /**
+     * Finds the events in a 30-day window.
+     *
+     * @return The matching events.
+     */
+    @Benchmark
+    public List<EventRecord> filterByDate() {
+        int i = nextQuery();
+        return store.query(froms[i], froms[i].plusDays(30), null, null, null, PAGE_SIZE);
+    }
+
+    /**
+     * Finds the upcoming events at a venue.
+     *
+     * @return The matching events.
+     */
+    @Benchmark
+    public List<EventRecord> filterByVenue() {
+        return store.query(null, null, venues[nextQuery()], null, null, PAGE_SIZE);
+    }
+
+    /**
+     * Finds the upcoming events of a genre.
+     *
+     * @return The matching events.
+     */
+    @Benchmark
+    public List<EventRecord> filterByGenre() {
+        return store.query(null, null, null, genres[nextQuery()], null, PAGE_SIZE);
+    }
+
+    /**
+     * Finds the upcoming events of an artist.
+     *
+     * @return The matching events.
+     */
+    @Benchmark
+    public List<EventRecord> filterByArtist() {
+        return store.query(null, null, null, null, artistIDs[nextQuery()], PAGE_SIZE);
+    }
+
+    /**
+     * Finds the events of a genre at a venue in a 30-day window, which
+     * intersects two posting lists.
+     *
+     * @return The matching events.
+     */
+    @Benchmark
+    public List<EventRecord> filterByDateVenueAndGenre() {
+        int i = nextQuery();
+        return store.query(froms[i], froms[i].plusDays(30), venues[i], genres[i], null, PAGE_SIZE);
+    }
+}
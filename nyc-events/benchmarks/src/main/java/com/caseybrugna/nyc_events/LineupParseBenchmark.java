@@ -0,0 +1,52 @@
+package com.caseybrugna.nyc_events;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks extracting the lineup from a saved Dice event page
+ * (fixtures/lineup-page.html), as LineupFetcher does for every fetched page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class LineupParseBenchmark {
+    private static final String EVENT_LINK = "https://dice.fm/event/floating-points-knockdown";
+
+    private String html;
+
+    /**
+     * Loads the saved page and checks that its lineup is still found, so the
+     * benchmark does not silently measure a failed lookup.
+     */
+    @Setup
+    public void setUp() {
+        html = String.join("\n", Benchmarks.readFixture("lineup-page.html"));
+        if (LineupFetcher.parseLineup(html, EVENT_LINK) == null) {
+            throw new IllegalStateException("The lineup selector no longer matches the saved page");
+        }
+    }
+
+    /**
+     * Parses the page with Jsoup and selects the lineup.
+     *
+     * @return The lineup.
+     */
+    @Benchmark
+    public String parseLineup() {
+        return LineupFetcher.parseLineup(html, EVENT_LINK);
+    }
+}
@@ -0,0 +1,167 @@
+package com.caseybrugna.nyc_events;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reports the retained heap of 10,000 upcoming events held as EventRecords,
+ * compared with the layout EventRecord had before it was dictionary-encoded
+ * (strings, a LocalDate and lists of strings per event), so the cost of
+ * holding a year of events in memory can be estimated.
+ * <p>
+ * The events are synthetic but shaped like the scraped ones: each value is a
+ * new String, as it is when read from a JDBC result set, and venues, prices,
+ * artists and genres repeat with a skewed distribution.
+ * It also reports the heap an EventStore retains after RELOADS reloads that
+ * each bring new artist names, as a long-running server sees over weeks of
+ * scrapes, which should stay at the size of a single snapshot.
+ * Run with "java -cp target/benchmarks.jar com.caseybrugna.nyc_events.MemoryReport [events]".
+ */
+public class MemoryReport {
+    private static final int DEFAULT_EVENTS = 10_000;
+    private static final int VENUES = 400;
+    private static final int PRICES = 60;
+    private static final int ARTISTS = 20_000;
+    private static final int GENRES = 300;
+    private static final int RELOADS = 20;
+
+    /**
+     * Prints the report.
+     *
+     * @param args The number of events to build, 10,000 by default.
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_EVENTS;
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+
+        StringDictionary dictionary = StringDictionary.current();
+        List<UncompactedEventRecord> before = new ArrayList<>(count);
+        List<EventRecord> after = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int lineupSize = 1 + random.nextInt(8);
+            int[] artists = new int[lineupSize];
+            for (int j = 0; j < lineupSize; j++) {
+                artists[j] = skewed(random, ARTISTS);
+            }
+            int[] genres = new int[1 + random.nextInt(6)];
+            for (int j = 0; j < genres.length; j++) {
+                genres[j] = skewed(random, GENRES);
+            }
+            int venue = skewed(random, VENUES);
+            int price = random.nextInt(PRICES);
+            LocalDate date = today.plusDays(random.nextInt(365));
+
+            // Each event gets its own copies, as if read back separately
+            before.add(new UncompactedEventRecord(EventKey.toEventID(random.nextLong()), "Event " + i, date,
+                    "Venue " + venue, "$" + price + ".00", "https://dice.fm/event/event-" + i,
+                    "https://dice-media.imgix.net/attachments/event-" + i + ".jpg", names(artists, "Artist "),
+                    names(artists, "spotify:artist:"), names(genres, "genre ")));
+            UncompactedEventRecord source = before.get(i);
+            after.add(new EventRecord(source.eventID, new String(source.eventName), date,
+                    new String(source.location), new String(source.price), new String(source.link),
+                    new String(source.imageUrl), copy(source.lineup), copy(source.artistIDs), copy(source.genres),
+                    random.nextInt(100)));
+        }
+
+        long beforeBytes = GraphLayout.parseInstance(before.toArray()).totalSize();
+        // The records reference their dictionary, so it is part of their graph
+        long afterBytes = GraphLayout.parseInstance(after.toArray()).totalSize();
+        long dictionaryBytes = GraphLayout.parseInstance(dictionary).totalSize();
+        long recordBytes = afterBytes - dictionaryBytes;
+        long reloadedBytes = GraphLayout.parseInstance(reloadedStore(after)).totalSize();
+
+        System.out.printf("Events:                %,d%n", count);
+        System.out.printf("Before (uncompacted):  %,d bytes (%,d per event)%n", beforeBytes, beforeBytes / count);
+        System.out.printf("After, records:        %,d bytes (%,d per event)%n", recordBytes, recordBytes / count);
+        System.out.printf("After, dictionary:     %,d bytes (%,d values)%n", dictionaryBytes, dictionary.size());
+        System.out.printf("After, total:          %,d bytes (%,d per event, %.0f%% of before)%n", afterBytes,
+                afterBytes / count, 100.0 * afterBytes / beforeBytes);
+        System.out.printf("Store after %d reloads: %,d bytes (%,d per event)%n", RELOADS, reloadedBytes,
+                reloadedBytes / count);
+    }
+
+    /**
+     * Loads the events into an EventStore RELOADS times, renaming every artist
+     * on each reload so that no value carries over from the last one.
+     */
+    private static EventStore reloadedStore(List<EventRecord> events) {
+        EventStore store = new EventStore();
+        for (int reload = 0; reload < RELOADS; reload++) {
+            List<EventRecord> reloaded = new ArrayList<>(events.size());
+            for (EventRecord event : events) {
+                List<String> lineup = new ArrayList<>();
+                for (String name : event.getLineup()) {
+                    lineup.add(name + " (" + reload + ")");
+                }
+                reloaded.add(new EventRecord(event.getEventID(), event.getEventName(), event.getLocalDate(),
+                        event.getLocation(), event.getPrice(), event.getLink(), event.getImageUrl(), lineup,
+                        event.getArtistIDs(), event.getGenres(), event.getPopularityScore()));
+            }
+            store.replace(reloaded);
+        }
+        return store;
+    }
+
+    /**
+     * Draws from 0 to bound - 1, favouring low values, so a few venues and
+     * artists appear far more often than the rest.
+     */
+    private static int skewed(Random random, int bound) {
+        double u = random.nextDouble();
+        return (int) (bound * u * u * u);
+    }
+
+    private static List<String> names(int[] ids, String prefix) {
+        List<String> names = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            names.add(prefix + id);
+        }
+        return names;
+    }
+
+    private static List<String> copy(List<String> values) {
+        List<String> copies = new ArrayList<>(values.size());
+        for (String value : values) {
+            copies.add(new String(value));
+        }
+        return copies;
+    }
+
+    /**
+     * The fields of EventRecord as they were before dictionary encoding.
+     */
+    private static final class UncompactedEventRecord {
+        private final String eventID;
+        private final String eventName;
+        private final LocalDate date;
+        private final String location;
+        private final String price;
+        private final String link;
+        private final String imageUrl;
+        private final List<String> lineup;
+        private final List<String> artistIDs;
+        private final List<String> genres;
+        private final int popularityScore;
+
+        UncompactedEventRecord(String eventID, String eventName, LocalDate date, String location, String price,
+                String link, String imageUrl, List<String> lineup, List<String> artistIDs, List<String> genres) {
+            this.eventID = eventID;
+            this.eventName = eventName;
+            this.date = date;
+            this.location = location;
+            this.price = price;
+            this.link = link;
+            this.imageUrl = imageUrl;
+            this.lineup = Collections.unmodifiableList(lineup);
+            this.artistIDs = Collections.unmodifiableList(artistIDs);
+            this.genres = Collections.unmodifiableList(genres);
+            this.popularityScore = 0;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.caseybrugna.nyc_events;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks typeahead queries against a SearchIndex of synthetic events; see
+ * SyntheticEvents. Queries are artist names, drawn with the same skew as the
+ * events, either cut short as if still being typed or with one typo. Each
+ * operation runs one query, cycling through a fixed set. The operations are
+ * sampled rather than averaged, so the report shows the latency percentiles
+ * that the typeahead target (p99 under 5 ms at 100k events) is stated in.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SearchIndexBenchmark {
+    private static final int QUERIES = 1024;
+    private static final int LIMIT = 10;
+
+    @Param({ "100000" })
+    private int events;
+
+    private SearchIndex index;
+    private String[] shortPrefixes;
+    private String[] longPrefixes;
+    private String[] typos;
+    private String[] twoWordQueries;
+    private int next;
+
+    /**
+     * Indexes the events and draws the queries.
+     */
+    @Setup
+    public void setUp() {
+        index = new SearchIndex();
+        index.sync(SyntheticEvents.generate(events, 42));
+
+        Random random = new Random(7);
+        shortPrefixes = new String[QUERIES];
+        longPrefixes = new String[QUERIES];
+        typos = new String[QUERIES];
+        twoWordQueries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String name = artistName(random);
+            shortPrefixes[i] = name.substring(0, 2);
+            longPrefixes[i] = name.substring(0, name.length() - 1);
+            typos[i] = withTypo(name, random);
+            twoWordQueries[i] = name + " " + SyntheticEvents.venue(0).substring(0, 3);
+        }
+    }
+
+    private static String artistName(Random random) {
+        return SyntheticEvents.artistName(SyntheticEvents.skewed(random, SyntheticEvents.ARTISTS)).toLowerCase();
+    }
+
+    /**
+     * Swaps two neighbouring characters, or replaces one if they are equal.
+     */
+    private static String withTypo(String word, Random random) {
+        char[] chars = word.toCharArray();
+        int i = 1 + random.nextInt(chars.length - 2);
+        if (chars[i] != chars[i + 1]) {
+            char swapped = chars[i];
+            chars[i] = chars[i + 1];
+            chars[i + 1] = swapped;
+        } else {
+            chars[i] = chars[i] == 'x' ? 'y' : 'x';
+        }
+        return new String(chars);
+    }
+
+    private int nextQuery() {
+        next = (next + 1) & (QUERIES - 1);
+        return next;
+    }
+
+    /**
+     * Searches for the first two letters of a name, which expand to the most
+     * terms.
+     *
+     * @return The matching events.
+     */
+    @Benchmark
+    public List<EventRecord> shortPrefix() {
+        return index.search(shortPrefixes[nextQuery()], LIMIT);
+    }
+
+    /**
+     * Searches for a name missing its last letter.
+     *
+     * @return The matching events.
+     */
+    @Benchmark
+    public List<EventRecord> longPrefix() {
+        return index.search(longPrefixes[nextQuery()], LIMIT);
+    }
+
+    /**
+     * Searches for a name with two letters swapped or one replaced.
+     *
+     * @return The matching events.
+     */
+    @Benchmark
+    public List<EventRecord> typo() {
+        return index.search(typos[nextQuery()], LIMIT);
+    }
+
+    /**
+     * Searches for a name followed by the start of a venue, which intersects
+     * an exact match with a prefix match.
+     *
+     * @return The matching events.
+     */
+    @Benchmark
+    public List<EventRecord> nameAndVenuePrefix() {
+        return index.search(twoWordQueries[nextQuery()], LIMIT);
+    }
+}
@@ -0,0 +1,206 @@
+package com.caseybrugna.nyc_events;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A local WebDriver endpoint that answers the W3C WebDriver commands the
+ * scraper uses from a page parsed with Jsoup, so that a RemoteWebDriver can be
+ * driven against a saved page without a browser. Every command is still a
+ * real HTTP round trip with JSON on both sides, as it is with chromedriver, but
+ * the browser's own work is left out, so timings against it are a lower bound
+ * for a real browser.
+ */
+final class StubWebDriverServer implements AutoCloseable {
+    private static final String SESSION_ID = "stub";
+    private static final String ELEMENT_KEY = "element-6066-11e4-a52e-4f735466cecf";
+
+    static {
+        // Without TCP_NODELAY the response body waits for the client's delayed
+        // ACK of the headers, which adds about 40 ms to every command; it is
+        // read once, when the first server in the JVM is created
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final Document page;
+    private final String html;
+    // Only touched from the server's single dispatcher thread
+    private final List<Element> elements = new ArrayList<>();
+    private final Map<Element, Integer> elementIDs = new IdentityHashMap<>();
+
+    /**
+     * Starts serving the page on a free local port.
+     *
+     * @param page The page to answer commands from.
+     * @throws IOException if the server cannot be started
+     */
+    StubWebDriverServer(Document page) throws IOException {
+        this.page = page;
+        this.html = page.outerHtml();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Returns the URL to point a RemoteWebDriver at.
+     *
+     * @return the server's URL
+     */
+    URL getUrl() {
+        try {
+            return new URL("http://127.0.0.1:" + server.getAddress().getPort());
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String[] path = exchange.getRequestURI().getPath().substring(1).split("/");
+        String method = exchange.getRequestMethod();
+        JsonObject body = "POST".equals(method) ? readBody(exchange) : new JsonObject();
+
+        try {
+            if (path.length == 1) {
+                JsonObject session = new JsonObject();
+                session.addProperty("sessionId", SESSION_ID);
+                JsonObject capabilities = new JsonObject();
+                capabilities.addProperty("browserName", "stub");
+                session.add("capabilities", capabilities);
+                respond(exchange, 200, session);
+            } else if (path.length == 2) {
+                respond(exchange, 200, JsonNull.INSTANCE);
+            } else if ("url".equals(path[2])) {
+                respond(exchange, 200, new JsonPrimitive(page.location()));
+            } else if ("source".equals(path[2])) {
+                respond(exchange, 200, new JsonPrimitive(html));
+            } else if ("elements".equals(path[2])) {
+                respond(exchange, 200, find(page, body, true));
+            } else if ("element".equals(path[2]) && path.length == 3) {
+                respond(exchange, 200, find(page, body, false));
+            } else if ("element".equals(path[2]) && path.length == 5 && path[4].startsWith("element")) {
+                respond(exchange, 200, find(element(path[3]), body, "elements".equals(path[4])));
+            } else if ("element".equals(path[2]) && path.length == 5 && "text".equals(path[4])) {
+                respond(exchange, 200, new JsonPrimitive(element(path[3]).text()));
+            } else if ("element".equals(path[2]) && path.length == 6 && "attribute".equals(path[4])) {
+                respond(exchange, 200, attribute(element(path[3]), path[5]));
+            } else if ("execute".equals(path[2])) {
+                // Selenium reads attributes by running its getAttribute atom
+                // with the element and the attribute name as arguments
+                JsonArray args = body.getAsJsonArray("args");
+                respond(exchange, 200, attribute(element(args.get(0)), args.get(1).getAsString()));
+            } else {
+                error(exchange, 404, "unknown command", method + " " + exchange.getRequestURI());
+            }
+        } catch (IllegalArgumentException e) {
+            error(exchange, 404, "no such element", e.getMessage());
+        }
+    }
+
+    private JsonElement find(Element root, JsonObject body, boolean all) {
+        String selector = body.get("value").getAsString();
+        if (all) {
+            JsonArray found = new JsonArray();
+            for (Element element : root.select(selector)) {
+                found.add(reference(element));
+            }
+            return found;
+        }
+        Element element = root.selectFirst(selector);
+        if (element == null) {
+            throw new IllegalArgumentException("No element matches " + selector);
+        }
+        return reference(element);
+    }
+
+    private JsonObject reference(Element element) {
+        Integer id = elementIDs.get(element);
+        if (id == null) {
+            id = elements.size();
+            elements.add(element);
+            elementIDs.put(element, id);
+        }
+        JsonObject reference = new JsonObject();
+        reference.addProperty(ELEMENT_KEY, String.valueOf(id));
+        return reference;
+    }
+
+    private Element element(JsonElement reference) {
+        JsonObject object = reference.getAsJsonObject();
+        JsonElement id = object.has(ELEMENT_KEY) ? object.get(ELEMENT_KEY) : object.get("ELEMENT");
+        return element(id.getAsString());
+    }
+
+    private Element element(String id) {
+        int index = Integer.parseInt(id);
+        if (index < 0 || index >= elements.size()) {
+            throw new IllegalArgumentException("No element with ID " + id);
+        }
+        return elements.get(index);
+    }
+
+    /**
+     * Returns an attribute the way a browser reports it, with links resolved
+     * against the page's URL.
+     */
+    private static JsonElement attribute(Element element, String name) {
+        if (!element.hasAttr(name)) {
+            return JsonNull.INSTANCE;
+        }
+        boolean isLink = "href".equals(name) || "src".equals(name);
+        return new JsonPrimitive(isLink ? element.absUrl(name) : element.attr(name));
+    }
+
+    private static JsonObject readBody(HttpExchange exchange) throws IOException {
+        try (InputStreamReader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            JsonElement body = JsonParser.parseReader(reader);
+            return body.isJsonObject() ? body.getAsJsonObject() : new JsonObject();
+        }
+    }
+
+    private static void error(HttpExchange exchange, int status, String error, String message) throws IOException {
+        JsonObject value = new JsonObject();
+        value.addProperty("error", error);
+        value.addProperty("message", message);
+        value.addProperty("stacktrace", "");
+        respond(exchange, status, value);
+    }
+
+    private static void respond(HttpExchange exchange, int status, JsonElement value) throws IOException {
+        JsonObject response = new JsonObject();
+        response.add("value", value);
+        byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.caseybrugna.nyc_events;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates upcoming events shaped like the scraped ones, for benchmarks that
+ * need more events than the fixtures hold. Venues, artists and genres repeat
+ * with a skewed distribution, so a few of them appear far more often than the
+ * rest, and artist names are made of syllables so that they share prefixes
+ * the way real names do. The same seed always gives the same events.
+ */
+final class SyntheticEvents {
+    static final int VENUES = 400;
+    static final int ARTISTS = 20_000;
+    static final int GENRES = 300;
+    private static final int PRICES = 60;
+    private static final String[] SYLLABLES = { "ka", "lo", "mi", "ra", "ne", "to", "su", "vi", "da", "ze",
+            "bo", "an", "el", "or", "ix", "um", "sha", "tri", "dre", "qua" };
+
+    private SyntheticEvents() {
+    }
+
+    /**
+     * Generates events over the year starting today.
+     *
+     * @param count The number of events.
+     * @param seed  The seed of the random generator.
+     * @return The events, in no particular order.
+     */
+    static List<EventRecord> generate(int count, long seed) {
+        Random random = new Random(seed);
+        LocalDate today = LocalDate.now();
+        List<EventRecord> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int lineupSize = 1 + random.nextInt(6);
+            List<String> lineup = new ArrayList<>(lineupSize);
+            List<String> artistIDs = new ArrayList<>(lineupSize);
+            List<String> genres = new ArrayList<>();
+            int popularity = 0;
+            for (int j = 0; j < lineupSize; j++) {
+                int artist = skewed(random, ARTISTS);
+                lineup.add(artistName(artist));
+                artistIDs.add(artistID(artist));
+                String genre = genre(skewed(random, GENRES));
+                if (!genres.contains(genre)) {
+                    genres.add(genre);
+                }
+                popularity = Math.max(popularity, popularity(artist));
+            }
+            events.add(new EventRecord(EventKey.toEventID(random.nextLong()), lineup.get(0) + " presents "
+                    + artistName(random.nextInt(ARTISTS)), today.plusDays(random.nextInt(365)),
+                    venue(skewed(random, VENUES)), "$" + random.nextInt(PRICES) + ".00",
+                    "https://dice.fm/event/event-" + i, "https://dice-media.imgix.net/attachments/event-" + i + ".jpg",
+                    lineup, artistIDs, genres, popularity));
+        }
+        return events;
+    }
+
+    /**
+     * Draws from 0 to bound - 1, favouring low values.
+     */
+    static int skewed(Random random, int bound) {
+        double u = random.nextDouble();
+        return (int) (bound * u * u * u);
+    }
+
+    /**
+     * Returns the name of an artist: two to four syllables picked by its
+     * number, so that nearby numbers do not share a prefix.
+     */
+    static String artistName(int artist) {
+        int hash = artist * 0x9E3779B1;
+        StringBuilder name = new StringBuilder();
+        for (int k = 0; k < 2 + (artist % 3); k++) {
+            name.append(SYLLABLES[Math.floorMod(hash >> (5 * k), SYLLABLES.length)]);
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+
+    static String artistID(int artist) {
+        return String.format("%022d", artist);
+    }
+
+    /**
+     * Returns the popularity of an artist; the lower numbers, which appear
+     * most often, are the most popular.
+     */
+    static int popularity(int artist) {
+        return Math.max(0, 100 - artist / (ARTISTS / 100));
+    }
+
+    static String venue(int venue) {
+        return "Venue " + venue;
+    }
+
+    static String genre(int genre) {
+        return "genre " + genre;
+    }
+}
@@ -0,0 +1,28 @@
+#!/usr/bin/env bash
+# Load test for the read API. Start the API first:
+#   mvn exec:java -Dexec.args="serve"
+# then run this script (needs wrk: https://github.com/wg/wrk). Each endpoint
+# is hit for 30 s with 8 threads and 256 connections after a short warm-up;
+# compare the Requests/sec line against the target of a few thousand per
+# second on one node. The results are also written to RESULTS_FILE, to be
+# committed with the change they measure.
+set -euo pipefail
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+DURATION="${DURATION:-30s}"
+RESULTS_FILE="${RESULTS_FILE:-loadtest/results-$(date +%Y-%m-%d).txt}"
+
+first_event_id=$(curl -sf "$BASE_URL/api/events?limit=1" | sed -n 's/.*"eventID":"\([^"]*\)".*/\1/p')
+if [ -z "$first_event_id" ]; then
+    echo "No upcoming events returned by $BASE_URL/api/events" >&2
+    exit 1
+fi
+
+{
+    echo "# $(date -u +%Y-%m-%dT%H:%M:%SZ) $BASE_URL, $(nproc) CPUs"
+    for path in "/api/events?limit=50" "/api/events/$first_event_id"; do
+        wrk -t2 -c16 -d5s "$BASE_URL$path" > /dev/null
+        echo "== $path"
+        wrk -t8 -c256 -d"$DURATION" --latency "$BASE_URL$path"
+    done
+} | tee "$RESULTS_FILE"
@@ -0,0 +1,103 @@
+package com.caseybrugna.nyc_events;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Wires up the objects the read API needs when Main is started with the
+ * "serve" argument.
+ */
+@Configuration
+public class ApiConfig {
+
+    /**
+     * Creates the DatabaseDAO the API reads from, connected to the database
+     * configured in the .env file.
+     *
+     * @return The connected DatabaseDAO.
+     */
+    @Bean(destroyMethod = "disconnect")
+    public DatabaseDAO databaseDAO() {
+        DatabaseDAO databaseDAO = DatabaseDAO.fromConfig();
+        databaseDAO.connect();
+        return databaseDAO;
+    }
+
+    /**
+     * Creates the cache the API serves responses from.
+     *
+     * @param databaseDAO The DatabaseDAO watched for new scrape runs.
+     * @return The ResponseCache.
+     */
+    @Bean(destroyMethod = "close")
+    public ResponseCache responseCache(DatabaseDAO databaseDAO) {
+        return ResponseCache.fromConfig(databaseDAO);
+    }
+
+    /**
+     * Creates the in-memory EventStore the API's filter queries are answered
+     * from. It is loaded from the database now and reloaded whenever a new
+     * scrape run commits. If a reload fails, the events already loaded are
+     * kept until the next run.
+     *
+     * @param databaseDAO   The DatabaseDAO to load events from.
+     * @param responseCache The cache that watches for new scrape runs.
+     * @return The loaded EventStore.
+     */
+    @Bean
+    public EventStore eventStore(DatabaseDAO databaseDAO, ResponseCache responseCache) {
+        EventStore eventStore = new EventStore();
+        Runnable reload = () -> {
+            List<EventRecord> events = databaseDAO.loadUpcomingEventRecords();
+            if (events == null) {
+                System.err.println("Could not reload the event store, keeping its " + eventStore.size()
+                        + " events.");
+                return;
+            }
+            eventStore.replace(events);
+            System.out.println("Loaded " + eventStore.size() + " events into the event store.");
+        };
+        reload.run();
+        responseCache.addRunListener(reload);
+        return eventStore;
+    }
+
+    /**
+     * Creates the SearchIndex the API's typeahead search is answered from. It
+     * is kept in step with the EventStore, re-indexing only the events that
+     * changed in each new scrape run.
+     *
+     * @param eventStore    The EventStore holding the events to index.
+     * @param responseCache The cache that watches for new scrape runs.
+     * @return The SearchIndex.
+     */
+    @Bean
+    public SearchIndex searchIndex(EventStore eventStore, ResponseCache responseCache) {
+        SearchIndex searchIndex = new SearchIndex();
+        searchIndex.sync(eventStore.getAll());
+        // Registered after the EventStore's listener, so it sees the new events
+        responseCache.addRunListener(() -> searchIndex.sync(eventStore.getAll()));
+        return searchIndex;
+    }
+
+    /**
+     * Creates the listing snapshots the API serves, loaded from the files the
+     * last scrape run wrote and reloaded whenever a new run commits. A
+     * listing whose dates have moved on since the last run, such as
+     * "tonight" after midnight, is rendered again from the EventStore.
+     *
+     * @param eventStore    The EventStore to render out-of-date listings from.
+     * @param responseCache The cache that watches for new scrape runs.
+     * @return The loaded ListingSnapshots.
+     */
+    @Bean
+    public ListingSnapshots listingSnapshots(EventStore eventStore, ResponseCache responseCache) {
+        ListingSnapshots listingSnapshots = ListingSnapshots.fromConfig();
+        listingSnapshots.setEventSource(eventStore::getAll);
+        listingSnapshots.load();
+        responseCache.addRunListener(listingSnapshots::load);
+        return listingSnapshots;
+    }
+}
@@ -21,32 +21,69 @@ public class Artist {
 
     /**
      * Constructor for the Artist class.
-     * Initializes an Artist object with the given name and fetches their details
-     * from the Spotify API.
+     * Initializes an Artist object with the given name and fetches their profile
+     * from the Spotify API. If no profile is found, the artist is linked to a
+     * Google search instead.
      *
      * @param name             The name of the artist.
      * @param spotifyApiClient The SpotifyAPIClient object to use for fetching
      *                         artist details.
+     * @throws SpotifyAPIClient.LookupFailedException If the profile could not
+     *                                                be looked up, so it is not
+     *                                                known whether there is one.
      */
     public Artist(String name, SpotifyAPIClient spotifyApiClient) {
         this.name = name;
         // this.spotifyApiClient = spotifyApiClient;
-        try {
-            this.artistID = spotifyApiClient.getArtistID(name);
-            this.topTrackIDs = spotifyApiClient.getArtistTopTracks(this.artistID);
-            this.topTrackTitles = spotifyApiClient.getArtistTopTrackTitles(topTrackIDs);
-            this.artistGenres = spotifyApiClient.getArtistGenres(this.artistID);
-            this.popularityScore = spotifyApiClient.getPopularityScore(this.artistID);
-            this.externalUrl = spotifyApiClient.getExternalUrl(this.artistID);
-
-            this.hasSpotifyProfile = true;
-        } catch (Exception e) {
-            this.artistID = null;
-            this.hasSpotifyProfile = false;
-            this.externalUrl = createGoogleSearch(name);
+        ArtistProfile profile = spotifyApiClient.getArtistProfile(name);
+        if (profile != null) {
+            applyProfile(profile);
+        } else {
+            markWithoutProfile();
+        }
+    }
+
+    /**
+     * Constructor for the Artist class for an artist whose profile has already
+     * been fetched.
+     *
+     * @param name    The name of the artist.
+     * @param profile The artist's Spotify profile, or null if they have none.
+     */
+    Artist(String name, ArtistProfile profile) {
+        this.name = name;
+        if (profile != null) {
+            applyProfile(profile);
+        } else {
+            markWithoutProfile();
         }
     }
 
+    /**
+     * Fills in the artist's Spotify details from the given profile.
+     *
+     * @param profile The artist's profile fetched from the Spotify API.
+     */
+    private void applyProfile(ArtistProfile profile) {
+        this.artistID = profile.getArtistID();
+        this.topTrackIDs = profile.getTopTrackIDs();
+        this.topTrackTitles = profile.getTopTrackTitles();
+        this.artistGenres = profile.getGenres();
+        this.popularityScore = profile.getPopularityScore();
+        this.externalUrl = profile.getExternalUrl();
+        this.hasSpotifyProfile = true;
+    }
+
+    /**
+     * Marks the artist as not having a Spotify profile and links to a Google
+     * search for them instead.
+     */
+    private void markWithoutProfile() {
+        this.artistID = null;
+        this.hasSpotifyProfile = false;
+        this.externalUrl = createGoogleSearch(name);
+    }
+
     /**
      * Returns the name of the artist.
      *
@@ -136,6 +173,16 @@ public class Artist {
         return hasSpotifyProfile;
     }
 
+    /**
+     * Returns a fingerprint of everything stored in the artist's database row,
+     * so the row is only rewritten when one of them has changed.
+     *
+     * @return The 64-bit content fingerprint of the artist.
+     */
+    public long getFingerprint() {
+        return Fingerprint.of(name, hasSpotifyProfile, popularityScore, externalUrl, getArtistGenresAsString());
+    }
+
     /**
      * Creates a Google search URL with the provided search text.
      *
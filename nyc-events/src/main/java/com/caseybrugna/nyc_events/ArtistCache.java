@@ -0,0 +1,264 @@
+package com.caseybrugna.nyc_events;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A persistent cache of Spotify artist lookups, keyed by normalized artist
+ * name.
+ * Resolved profiles and "not found" results are both cached, each with their
+ * own time to live, so that names that never resolve are not searched again on
+ * every run. The cache is loaded from a file in the working directory when it
+ * is created and written back with {@link #save()}.
+ */
+public class ArtistCache {
+    private static final String DEFAULT_FILE = ".artist-cache.ser";
+    private static final long DEFAULT_TTL_HOURS = 7 * 24;
+    private static final long DEFAULT_NOT_FOUND_TTL_HOURS = 24;
+
+    private final Path file;
+    private final long ttlMillis;
+    private final long notFoundTtlMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong notFoundHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * A cached lookup result. A null profile means the artist was searched for
+     * and not found on Spotify.
+     */
+    public static final class Entry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final ArtistProfile profile;
+        private final long storedAt;
+
+        private Entry(ArtistProfile profile, long storedAt) {
+            this.profile = profile;
+            this.storedAt = storedAt;
+        }
+
+        /**
+         * Returns the cached profile.
+         *
+         * @return the profile, or null if the artist was not found on Spotify
+         */
+        public ArtistProfile getProfile() {
+            return profile;
+        }
+    }
+
+    /**
+     * Constructor for the ArtistCache class.
+     * Loads any existing entries from the given file, dropping those that have
+     * already expired.
+     *
+     * @param file              The file the cache is persisted to.
+     * @param ttlMillis         How long a resolved profile stays valid.
+     * @param notFoundTtlMillis How long a "not found" result stays valid.
+     */
+    public ArtistCache(Path file, long ttlMillis, long notFoundTtlMillis) {
+        this.file = file;
+        this.ttlMillis = ttlMillis;
+        this.notFoundTtlMillis = notFoundTtlMillis;
+        load();
+    }
+
+    /**
+     * Creates an ArtistCache configured from the .env file.
+     * ARTIST_CACHE_FILE, ARTIST_CACHE_TTL_HOURS and
+     * ARTIST_CACHE_NOT_FOUND_TTL_HOURS override the defaults.
+     *
+     * @return The configured ArtistCache.
+     */
+    public static ArtistCache fromConfig() {
+        Dotenv dotenv = Dotenv.configure()
+                .directory("src/main/resources")
+                .load();
+        Path file = Paths.get(dotenv.get("ARTIST_CACHE_FILE", DEFAULT_FILE));
+        long ttlHours = parseHours(dotenv.get("ARTIST_CACHE_TTL_HOURS"), DEFAULT_TTL_HOURS);
+        long notFoundTtlHours = parseHours(dotenv.get("ARTIST_CACHE_NOT_FOUND_TTL_HOURS"),
+                DEFAULT_NOT_FOUND_TTL_HOURS);
+        return new ArtistCache(file, TimeUnit.HOURS.toMillis(ttlHours), TimeUnit.HOURS.toMillis(notFoundTtlHours));
+    }
+
+    private static long parseHours(String value, long defaultHours) {
+        if (value == null) {
+            return defaultHours;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid artist cache TTL " + value + ", using " + defaultHours + " hours.");
+            return defaultHours;
+        }
+    }
+
+    /**
+     * Normalizes an artist name into a cache key by trimming it, collapsing
+     * whitespace and lower-casing it.
+     *
+     * @param artistName The artist name as scraped.
+     * @return The normalized key.
+     */
+    public static String normalize(String artistName) {
+        if (artistName == null) {
+            return "";
+        }
+        return artistName.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Looks up an artist in the cache.
+     *
+     * @param artistName The name of the artist.
+     * @return The cached entry, or null if there is no entry or it has expired.
+     */
+    public Entry get(String artistName) {
+        String key = normalize(artistName);
+        Entry entry = entries.get(key);
+        if (entry == null || isExpired(entry, System.currentTimeMillis())) {
+            if (entry != null) {
+                entries.remove(key, entry);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        if (entry.getProfile() != null) {
+            hits.incrementAndGet();
+        } else {
+            notFoundHits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Stores a resolved artist profile.
+     *
+     * @param artistName The name the artist was searched for by.
+     * @param profile    The profile returned by Spotify.
+     */
+    public void put(String artistName, ArtistProfile profile) {
+        entries.put(normalize(artistName), new Entry(profile, System.currentTimeMillis()));
+    }
+
+    /**
+     * Records that an artist could not be found on Spotify.
+     *
+     * @param artistName The name the artist was searched for by.
+     */
+    public void putNotFound(String artistName) {
+        entries.put(normalize(artistName), new Entry(null, System.currentTimeMillis()));
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        long ttl = entry.getProfile() != null ? ttlMillis : notFoundTtlMillis;
+        return now - entry.storedAt > ttl;
+    }
+
+    /**
+     * Loads the cache file if it exists. A missing or unreadable file leaves
+     * the cache empty.
+     */
+    @SuppressWarnings("unchecked")
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (InputStream in = Files.newInputStream(file);
+                ObjectInputStream objectIn = new ObjectInputStream(in)) {
+            Map<String, Entry> stored = (Map<String, Entry>) objectIn.readObject();
+            long now = System.currentTimeMillis();
+            for (Map.Entry<String, Entry> storedEntry : stored.entrySet()) {
+                if (!isExpired(storedEntry.getValue(), now)) {
+                    entries.put(storedEntry.getKey(), storedEntry.getValue());
+                }
+            }
+            System.out.println("Loaded " + entries.size() + " cached artists from " + file + ".");
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            System.err.println("Could not read the artist cache, starting empty: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the cache to its file. The file is replaced atomically so that an
+     * interrupted write never leaves a corrupt cache behind.
+     */
+    public void save() {
+        try {
+            Path absolute = file.toAbsolutePath();
+            Path temp = Files.createTempFile(absolute.getParent(), "artist-cache", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp);
+                    ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+                objectOut.writeObject(new HashMap<>(entries));
+            }
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write the artist cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the number of lookups answered with a cached profile.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups answered with a cached "not found" result.
+     *
+     * @return the number of negative hits
+     */
+    public long getNotFoundHits() {
+        return notFoundHits.get();
+    }
+
+    /**
+     * Returns the number of lookups that had to go to Spotify.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the fraction of lookups answered from the cache.
+     *
+     * @return the hit ratio between 0 and 1
+     */
+    public double getHitRatio() {
+        long answered = hits.get() + notFoundHits.get();
+        long total = answered + misses.get();
+        return total == 0 ? 0.0 : (double) answered / total;
+    }
+
+    /**
+     * Prints the cache size and hit/miss counts.
+     */
+    public void printStats() {
+        System.out.printf("Artist cache: %d entries, %d hits, %d not-found hits, %d misses (%.1f%% hit ratio)%n",
+                entries.size(), getHits(), getNotFoundHits(), getMisses(), getHitRatio() * 100);
+    }
+}
@@ -0,0 +1,114 @@
+package com.caseybrugna.nyc_events;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A class that enriches the lineups of scraped events with Spotify artist data.
+ * It is safe to call from several threads at once, so events can be enriched
+ * in parallel; an artist who appears on several lineups is only looked up once.
+ */
+public class ArtistEnricher {
+    private static final int DEFAULT_THREADS = 8;
+    private static final SampledLog ARTIST_LOG = new SampledLog("artists");
+
+    private final ArtistRegistry registry;
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final long start = System.nanoTime();
+
+    /**
+     * Constructor for the ArtistEnricher class.
+     *
+     * @param spotifyApiClient The SpotifyAPIClient object to use for fetching
+     *                         artist details.
+     */
+    public ArtistEnricher(SpotifyAPIClient spotifyApiClient) {
+        this.registry = new ArtistRegistry(spotifyApiClient);
+    }
+
+    /**
+     * Reads the number of enrichment threads from ENRICH_THREADS in the .env
+     * file.
+     *
+     * @return The configured number of threads, or the default if it is
+     *         missing or invalid.
+     */
+    public static int configuredThreads() {
+        Dotenv dotenv = Dotenv.configure()
+                .directory("src/main/resources")
+                .load();
+        try {
+            return Math.max(1, Integer.parseInt(dotenv.get("ENRICH_THREADS", String.valueOf(DEFAULT_THREADS)).trim()));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid ENRICH_THREADS value, using " + DEFAULT_THREADS + ": " + e.getMessage());
+            return DEFAULT_THREADS;
+        }
+    }
+
+    /**
+     * Creates an Artist object for every artist in the event's lineup and adds
+     * each one to the event in lineup order.
+     * If an error occurs while creating an Artist, it is logged, the event is
+     * marked as having incomplete artists so its stored lineup is kept, and the
+     * remaining artists are still processed. An artist who has already been
+     * looked up in this run is shared instead of being looked up again.
+     *
+     * @param event The event whose lineup should be enriched.
+     */
+    public void enrichEvent(Event event) {
+        if (event.getLineup() == null) {
+            return;
+        }
+        for (String artistString : event.getLineup()) {
+            lookups.incrementAndGet();
+            Artist artist = createArtist(artistString);
+            if (artist != null) {
+                event.addArtist(artist);
+            } else {
+                event.markArtistLookupFailed();
+            }
+        }
+    }
+
+    /**
+     * Returns every Artist object created so far, each exactly once.
+     *
+     * @return A deduplicated list of artists.
+     */
+    public List<Artist> getArtists() {
+        return registry.getArtists();
+    }
+
+    /**
+     * Prints the throughput of the enrichment so far and how many lineup
+     * entries were answered by sharing an earlier lookup.
+     */
+    public void printStats() {
+        int count = lookups.get();
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.printf("Enriched %d artists in %.1f s (%.2f artists/sec)%n",
+                count, seconds, seconds > 0 ? count / seconds : 0.0);
+        System.out.printf("%d unique artists looked up, %d duplicate lineup entries shared%n",
+                registry.getUniqueLookups(), registry.getSharedLookups());
+    }
+
+    /**
+     * Creates a single Artist object, logging and swallowing any error so that
+     * one failed lookup does not affect the rest of the run.
+     *
+     * @param artistString The name of the artist.
+     * @return The created Artist object, or null if an error occurred.
+     */
+    private Artist createArtist(String artistString) {
+        try {
+            Artist artist = registry.getArtist(artistString);
+            ARTIST_LOG.log(artist);
+            return artist;
+        } catch (RuntimeException e) {
+            System.err.println("An error occurred while creating " + artistString + e.getMessage());
+            return null;
+        }
+    }
+}
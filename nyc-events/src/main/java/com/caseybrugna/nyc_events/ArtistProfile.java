@@ -0,0 +1,108 @@
+package com.caseybrugna.nyc_events;
+
+import java.io.Serializable;
+
+/**
+ * An immutable snapshot of an artist's details as returned by the Spotify API.
+ */
+public final class ArtistProfile implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String artistID;
+    private final String name;
+    private final String[] genres;
+    private final int popularityScore;
+    private final String externalUrl;
+    private final String[] topTrackIDs;
+    private final String[] topTrackTitles;
+
+    /**
+     * Constructs an ArtistProfile object with the specified details.
+     *
+     * @param artistID        the Spotify ID of the artist
+     * @param name            the name of the artist on Spotify
+     * @param genres          the top genres associated with the artist
+     * @param popularityScore the artist's popularity score
+     * @param externalUrl     the artist's Spotify profile URL
+     * @param topTrackIDs     the IDs of the artist's top tracks
+     * @param topTrackTitles  the titles of the artist's top tracks
+     */
+    public ArtistProfile(String artistID, String name, String[] genres, int popularityScore, String externalUrl,
+            String[] topTrackIDs, String[] topTrackTitles) {
+        this.artistID = artistID;
+        this.name = name;
+        this.genres = copy(genres);
+        this.popularityScore = popularityScore;
+        this.externalUrl = externalUrl;
+        this.topTrackIDs = copy(topTrackIDs);
+        this.topTrackTitles = copy(topTrackTitles);
+    }
+
+    /**
+     * Returns the Spotify ID of the artist.
+     *
+     * @return the artist ID
+     */
+    public String getArtistID() {
+        return artistID;
+    }
+
+    /**
+     * Returns the name of the artist on Spotify.
+     *
+     * @return the artist name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the top genres associated with the artist.
+     *
+     * @return a copy of the artist's genres
+     */
+    public String[] getGenres() {
+        return copy(genres);
+    }
+
+    /**
+     * Returns the popularity score of the artist.
+     *
+     * @return the popularity score
+     */
+    public int getPopularityScore() {
+        return popularityScore;
+    }
+
+    /**
+     * Returns the Spotify profile URL of the artist.
+     *
+     * @return the external URL
+     */
+    public String getExternalUrl() {
+        return externalUrl;
+    }
+
+    /**
+     * Returns the IDs of the artist's top tracks.
+     *
+     * @return a copy of the top track IDs
+     */
+    public String[] getTopTrackIDs() {
+        return copy(topTrackIDs);
+    }
+
+    /**
+     * Returns the titles of the artist's top tracks, in the same order as
+     * {@link #getTopTrackIDs()}.
+     *
+     * @return a copy of the top track titles
+     */
+    public String[] getTopTrackTitles() {
+        return copy(topTrackTitles);
+    }
+
+    private static String[] copy(String[] values) {
+        return values == null ? new String[0] : values.clone();
+    }
+}
@@ -0,0 +1,104 @@
+package com.caseybrugna.nyc_events;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable artist as read back from the database, with the IDs of their
+ * upcoming events, served by the read API.
+ */
+public final class ArtistRecord {
+    private final String artistID;
+    private final String name;
+    private final boolean hasSpotifyProfile;
+    private final int popularityScore;
+    private final String externalUrl;
+    private final List<String> genres;
+    private final List<String> upcomingEventIDs;
+
+    /**
+     * Constructs an ArtistRecord object with the specified details.
+     *
+     * @param artistID          the Spotify ID of the artist
+     * @param name              the name of the artist
+     * @param hasSpotifyProfile whether the artist has a Spotify profile
+     * @param popularityScore   the artist's popularity score
+     * @param externalUrl       the artist's profile URL
+     * @param genres            the artist's genres
+     * @param upcomingEventIDs  the IDs of the artist's upcoming events, soonest
+     *                          first
+     */
+    public ArtistRecord(String artistID, String name, boolean hasSpotifyProfile, int popularityScore,
+            String externalUrl, List<String> genres, List<String> upcomingEventIDs) {
+        this.artistID = artistID;
+        this.name = name;
+        this.hasSpotifyProfile = hasSpotifyProfile;
+        this.popularityScore = popularityScore;
+        this.externalUrl = externalUrl;
+        this.genres = Collections.unmodifiableList(genres);
+        this.upcomingEventIDs = Collections.unmodifiableList(upcomingEventIDs);
+    }
+
+    /**
+     * Returns the Spotify ID of the artist.
+     *
+     * @return the artist ID
+     */
+    public String getArtistID() {
+        return artistID;
+    }
+
+    /**
+     * Returns the name of the artist.
+     *
+     * @return the artist name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns whether the artist has a Spotify profile.
+     *
+     * @return true if the artist was found on Spotify
+     */
+    public boolean getHasSpotifyProfile() {
+        return hasSpotifyProfile;
+    }
+
+    /**
+     * Returns the popularity score of the artist on Spotify.
+     *
+     * @return the popularity score
+     */
+    public int getPopularityScore() {
+        return popularityScore;
+    }
+
+    /**
+     * Returns the artist's profile URL.
+     *
+     * @return the external URL
+     */
+    public String getExternalUrl() {
+        return externalUrl;
+    }
+
+    /**
+     * Returns the artist's genres.
+     *
+     * @return an unmodifiable list of genres
+     */
+    public List<String> getGenres() {
+        return genres;
+    }
+
+    /**
+     * Returns the IDs of the artist's upcoming events, soonest first.
+     *
+     * @return an unmodifiable list of event IDs
+     */
+    public List<String> getUpcomingEventIDs() {
+        return upcomingEventIDs;
+    }
+}
@@ -0,0 +1,103 @@
+package com.caseybrugna.nyc_events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A registry of the artists looked up during a single run.
+ * Every artist name (after normalization) is looked up at most once: repeated
+ * or concurrent requests for the same name wait on the same in-flight lookup
+ * and share the resulting Artist object.
+ */
+public class ArtistRegistry {
+    private final SpotifyAPIClient spotifyApiClient;
+    private final ConcurrentMap<String, CompletableFuture<Artist>> lookups = new ConcurrentHashMap<>();
+    private final Queue<CompletableFuture<Artist>> inOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger sharedLookups = new AtomicInteger();
+
+    /**
+     * Constructor for the ArtistRegistry class.
+     *
+     * @param spotifyApiClient The SpotifyAPIClient object to use for fetching
+     *                         artist details.
+     */
+    public ArtistRegistry(SpotifyAPIClient spotifyApiClient) {
+        this.spotifyApiClient = spotifyApiClient;
+    }
+
+    /**
+     * Returns the Artist object for the given name, creating it if this is the
+     * first time the name has been requested. If another thread is already
+     * creating it, this waits for that lookup instead of starting a new one.
+     *
+     * @param name The name of the artist.
+     * @return The shared Artist object for that name.
+     * @throws RuntimeException If an error occurred while creating the artist.
+     */
+    public Artist getArtist(String name) {
+        String key = ArtistCache.normalize(name);
+        CompletableFuture<Artist> created = new CompletableFuture<>();
+        CompletableFuture<Artist> existing = lookups.putIfAbsent(key, created);
+
+        if (existing != null) {
+            sharedLookups.incrementAndGet();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        inOrder.add(created);
+        try {
+            Artist artist = new Artist(name, spotifyApiClient);
+            created.complete(artist);
+            return artist;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns every artist that was created successfully, each exactly once, in
+     * the order they were first requested.
+     *
+     * @return A deduplicated list of artists.
+     */
+    public List<Artist> getArtists() {
+        List<Artist> artists = new ArrayList<>();
+        for (CompletableFuture<Artist> lookup : inOrder) {
+            if (lookup.isDone() && !lookup.isCompletedExceptionally()) {
+                artists.add(lookup.join());
+            }
+        }
+        return artists;
+    }
+
+    /**
+     * Returns the number of distinct artist names that have been requested.
+     *
+     * @return the number of unique lookups
+     */
+    public int getUniqueLookups() {
+        return lookups.size();
+    }
+
+    /**
+     * Returns the number of requests that were answered by sharing an existing
+     * lookup instead of contacting Spotify again.
+     *
+     * @return the number of shared lookups
+     */
+    public int getSharedLookups() {
+        return sharedLookups.get();
+    }
+}
@@ -0,0 +1,323 @@
+package com.caseybrugna.nyc_events;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the Chrome sessions used to scrape browse pages.
+ * By default (DICE_BROWSER_LEAN=true) Chrome runs headless and never loads
+ * images, media, fonts or the third-party trackers in BLOCKED_URLS, nor any
+ * pattern added in DICE_BROWSER_BLOCKED_URLS, through the DevTools
+ * Network.setBlockedURLs command. Pages still contain their img elements and
+ * src attributes, so nothing the scraper reads is lost. Setting it to false
+ * gives the full, headed browser, for comparing page-load times and RSS.
+ * If DICE_BROWSER_WARM_PORT is set, each session is a warm Chrome listening
+ * for DevTools on its own port from that one up, with its profile in
+ * DICE_BROWSER_PROFILE_DIR. A run attaches to the Chrome left by the previous
+ * run, launching it only if it is not running, and leaves it running when it
+ * finishes; a Chrome that fails is closed so the next session relaunches it.
+ */
+public class ChromeSessions {
+    private static final String CHROMEDRIVER = "/usr/local/bin/chromedriver";
+    private static final String DEFAULT_CHROME_BINARY = "google-chrome";
+    private static final String DEFAULT_PROFILE_DIR = ".chrome-profile";
+    private static final long LAUNCH_TIMEOUT_MILLIS = 15_000;
+
+    // Images, media and fonts, and the trackers loaded by the browse pages
+    private static final List<String> BLOCKED_URLS = Arrays.asList(
+            "*.png", "*.jpg", "*.jpeg", "*.gif", "*.webp", "*.avif", "*.svg", "*.ico",
+            "*.mp4", "*.webm", "*.mp3", "*.m3u8",
+            "*.woff", "*.woff2", "*.ttf", "*.otf",
+            "*googletagmanager.com*", "*google-analytics.com*", "*doubleclick.net*", "*connect.facebook.net*",
+            "*hotjar.com*", "*segment.com*", "*segment.io*", "*branch.io*", "*intercom.io*",
+            "*tiktok.com*", "*snapchat.com*", "*bing.com*");
+
+    private static final List<String> LEAN_ARGUMENTS = Arrays.asList(
+            "--headless=new", "--disable-gpu", "--disable-extensions", "--mute-audio", "--no-first-run",
+            "--blink-settings=imagesEnabled=false", "--window-size=1280,2000");
+
+    private final boolean lean;
+    private final List<String> blockedUrls;
+    private final String chromeBinary;
+    private final Path profileDir;
+    private final BlockingQueue<Integer> freePorts = new LinkedBlockingQueue<>();
+    private final Set<Integer> warmPorts = new HashSet<>();
+    private final Map<WebDriver, Integer> portsInUse = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for the ChromeSessions class.
+     *
+     * @param lean         Whether to run headless and block heavy resources.
+     * @param blockedUrls  The URL patterns to block in lean sessions.
+     * @param warmPort     The DevTools port of the first warm Chrome, or 0 to
+     *                     start a new Chrome for every session.
+     * @param warmSessions How many warm Chromes to keep, one per session.
+     * @param chromeBinary The Chrome executable to launch warm Chromes with.
+     * @param profileDir   The directory to keep the warm Chromes' profiles in.
+     */
+    public ChromeSessions(boolean lean, List<String> blockedUrls, int warmPort, int warmSessions,
+            String chromeBinary, Path profileDir) {
+        this.lean = lean;
+        this.blockedUrls = blockedUrls;
+        this.chromeBinary = chromeBinary;
+        this.profileDir = profileDir.toAbsolutePath();
+        if (warmPort > 0) {
+            for (int i = 0; i < Math.max(1, warmSessions); i++) {
+                freePorts.add(warmPort + i);
+                warmPorts.add(warmPort + i);
+            }
+        }
+    }
+
+    /**
+     * Creates a ChromeSessions configured from the .env file.
+     * DICE_BROWSER_LEAN, DICE_BROWSER_BLOCKED_URLS, DICE_BROWSER_WARM_PORT,
+     * DICE_CHROME_BINARY and DICE_BROWSER_PROFILE_DIR override the defaults.
+     *
+     * @param sessions The maximum number of sessions open at once.
+     * @return The configured ChromeSessions.
+     */
+    public static ChromeSessions fromConfig(int sessions) {
+        Dotenv dotenv = Dotenv.configure()
+                .directory("src/main/resources")
+                .load();
+        boolean lean = Boolean.parseBoolean(dotenv.get("DICE_BROWSER_LEAN", "true").trim());
+
+        List<String> blockedUrls = new ArrayList<>(BLOCKED_URLS);
+        for (String pattern : dotenv.get("DICE_BROWSER_BLOCKED_URLS", "").split(",")) {
+            if (!pattern.trim().isEmpty()) {
+                blockedUrls.add(pattern.trim());
+            }
+        }
+
+        int warmPort = 0;
+        try {
+            warmPort = Integer.parseInt(dotenv.get("DICE_BROWSER_WARM_PORT", "0").trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid DICE_BROWSER_WARM_PORT value, starting a new Chrome per run: "
+                    + e.getMessage());
+        }
+        return new ChromeSessions(lean, blockedUrls, warmPort, sessions,
+                dotenv.get("DICE_CHROME_BINARY", DEFAULT_CHROME_BINARY).trim(),
+                Paths.get(dotenv.get("DICE_BROWSER_PROFILE_DIR", DEFAULT_PROFILE_DIR).trim()));
+    }
+
+    /**
+     * Returns the name of the browser profile, to tag metrics with.
+     *
+     * @return "lean" or "full"
+     */
+    public String getProfile() {
+        return lean ? "lean" : "full";
+    }
+
+    /**
+     * Starts a session: attaches to a free warm Chrome, launching it first if
+     * it is not running, or starts a new Chrome if warm sessions are off.
+     *
+     * @return An instance of WebDriver.
+     * @throws WebDriverException If Chrome could not be started.
+     */
+    public WebDriver start() {
+        System.setProperty("webdriver.chrome.driver", CHROMEDRIVER);
+        Integer port = freePorts.poll();
+        ChromeOptions options = new ChromeOptions();
+        if (port != null) {
+            try {
+                if (!isListening(port)) {
+                    launchWarmChrome(port);
+                    RunMetrics.registry().counter("dice.browser.launched", "warm", "true").increment();
+                }
+            } catch (WebDriverException e) {
+                freePorts.add(port);
+                throw e;
+            }
+            options.setExperimentalOption("debuggerAddress", "127.0.0.1:" + port);
+        } else {
+            if (lean) {
+                options.addArguments(LEAN_ARGUMENTS);
+                options.setExperimentalOption("prefs",
+                        Collections.singletonMap("profile.managed_default_content_settings.images", 2));
+            }
+            RunMetrics.registry().counter("dice.browser.launched", "warm", "false").increment();
+        }
+
+        ChromeDriver driver;
+        try {
+            driver = new ChromeDriver(options);
+        } catch (WebDriverException e) {
+            if (port != null) {
+                freePorts.add(port);
+            }
+            throw e;
+        }
+        if (port != null) {
+            portsInUse.put(driver, port);
+        }
+        if (lean) {
+            try {
+                driver.executeCdpCommand("Network.enable", Collections.emptyMap());
+                driver.executeCdpCommand("Network.setBlockedURLs",
+                        Collections.<String, Object>singletonMap("urls", blockedUrls));
+            } catch (WebDriverException e) {
+                System.err.println("Could not block resources in a browser session: " + e.getMessage());
+            }
+        }
+        return driver;
+    }
+
+    /**
+     * Ends a session. A warm Chrome is left running for the next session
+     * unless the session failed, in which case it is closed so that it is
+     * relaunched; any other Chrome is quit.
+     *
+     * @param driver The session to end.
+     * @param failed Whether the session failed.
+     */
+    public void stop(WebDriver driver, boolean failed) {
+        Integer port = portsInUse.remove(driver);
+        try {
+            if (port != null && failed && driver instanceof ChromeDriver) {
+                try {
+                    ((ChromeDriver) driver).executeCdpCommand("Browser.close", Collections.emptyMap());
+                } catch (WebDriverException e) {
+                    // The browser is already gone
+                }
+            }
+            // A session attached through debuggerAddress leaves the browser running when it quits
+            driver.quit();
+        } catch (WebDriverException e) {
+            System.err.println("An error occurred while quitting a browser session: " + e.getMessage());
+        } finally {
+            if (port != null) {
+                freePorts.add(port);
+            }
+        }
+    }
+
+    private void launchWarmChrome(int port) {
+        List<String> command = new ArrayList<>();
+        command.add(chromeBinary);
+        command.add("--remote-debugging-port=" + port);
+        command.add("--user-data-dir=" + profileDir.resolve(String.valueOf(port)));
+        if (lean) {
+            command.addAll(LEAN_ARGUMENTS);
+        }
+        command.add("about:blank");
+        try {
+            Files.createDirectories(profileDir);
+            new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LAUNCH_TIMEOUT_MILLIS);
+            while (!isListening(port)) {
+                if (System.nanoTime() - deadline > 0) {
+                    throw new WebDriverException("Chrome did not start listening on port " + port);
+                }
+                Thread.sleep(100);
+            }
+            System.out.println("Launched a warm Chrome on port " + port + ".");
+        } catch (IOException e) {
+            throw new WebDriverException("Could not launch Chrome: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while launching Chrome", e);
+        }
+    }
+
+    private static boolean isListening(int port) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress("127.0.0.1", port), 200);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the total resident set size of the browser: chromedriver and
+     * the Chrome processes it started, and any warm Chromes with all of their
+     * renderer and helper processes. Memory shared between the processes is
+     * counted once per process, so this overstates what Chrome uses on its
+     * own, but is comparable between profiles.
+     *
+     * @return the RSS in bytes, or -1 if it cannot be read on this platform
+     */
+    public long browserRssBytes() {
+        Set<ProcessHandle> roots = new HashSet<>();
+        ProcessHandle.current().children().forEach(roots::add);
+        if (!warmPorts.isEmpty()) {
+            ProcessHandle.allProcesses()
+                    .filter(process -> process.info().arguments().map(this::isWarmChrome).orElse(false))
+                    .forEach(roots::add);
+        }
+
+        Set<Long> counted = new HashSet<>();
+        long total = 0;
+        for (ProcessHandle root : roots) {
+            List<ProcessHandle> processes = new ArrayList<>();
+            processes.add(root);
+            root.descendants().forEach(processes::add);
+            for (ProcessHandle process : processes) {
+                if (counted.add(process.pid())) {
+                    long rss = rssBytes(process.pid());
+                    if (rss < 0) {
+                        return -1;
+                    }
+                    total += rss;
+                }
+            }
+        }
+        return total;
+    }
+
+    private boolean isWarmChrome(String[] arguments) {
+        for (String argument : arguments) {
+            if (argument.startsWith("--remote-debugging-port=")) {
+                try {
+                    return warmPorts.contains(Integer.parseInt(argument.substring(argument.indexOf('=') + 1)));
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static long rssBytes(long pid) {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc", String.valueOf(pid), "status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+                }
+            }
+            return 0;
+        } catch (IOException | RuntimeException e) {
+            // Not Linux, or the process has already exited
+            return Files.isDirectory(Paths.get("/proc")) ? 0 : -1;
+        }
+    }
+}
@@ -1,36 +1,144 @@
 package com.caseybrugna.nyc_events;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import java.sql.Date;
+import java.sql.Types;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 
-import com.wrapper.spotify.model_objects.specification.ExternalUrl;
+import io.micrometer.core.instrument.DistributionSummary;
 
-import javassist.bytecode.stackmap.BasicBlock.Catch;
+import io.github.cdimascio.dotenv.Dotenv;
 
 public class DatabaseDAO {
-    private Connection connection;
+    private static final String DEFAULT_URL = "jdbc:mysql://localhost:3306/events_db?serverTimezone=UTC"
+            + "&rewriteBatchedStatements=true";
+    private static final int DEFAULT_POOL_SIZE = 4;
+    private static final int DEFAULT_CHUNK_SIZE = 500;
+    private static final SampledLog BATCH_LOG = new SampledLog("db batches");
+    // Event rows are read with their key in event ID form; see EventKey
+    private static final String EVENT_COLUMNS = "LOWER(HEX(EventKey)) AS EventID, EventName, Date, Location, " +
+            "Price, Link, ImageUrl, Lineup";
+
+    private HikariDataSource dataSource;
     private String url;
     private String username;
     private String password;
+    private int poolSize;
+    private int chunkSize;
+
+    // Fingerprints of the stored rows by ID, kept current as rows are written.
+    // Only the writing thread reads or updates them.
+    private final Map<String, Long> eventFingerprints = new HashMap<>();
+    private final Map<String, Long> artistFingerprints = new HashMap<>();
+    private final WriteCounts eventCounts = new WriteCounts();
+    private final WriteCounts artistCounts = new WriteCounts();
+
+    /**
+     * Binds one item to the parameters of a batched statement.
+     *
+     * @param <T> The type of the items being written.
+     */
+    private interface StatementBinder<T> {
+        void bind(PreparedStatement statement, T item) throws SQLException;
+    }
+
+    /**
+     * How many rows of a table were inserted, updated or left alone because
+     * they had not changed.
+     */
+    private static class WriteCounts {
+        private int inserted;
+        private int updated;
+        private int unchanged;
+
+        @Override
+        public String toString() {
+            return inserted + " inserted, " + updated + " updated, " + unchanged + " unchanged";
+        }
+    }
+
+    /**
+     * One row of the EventArtist association table.
+     */
+    private static class EventArtistRow {
+        private final String eventID;
+        private final String artistID;
+        private final int position;
+
+        EventArtistRow(String eventID, String artistID, int position) {
+            this.eventID = eventID;
+            this.artistID = artistID;
+            this.position = position;
+        }
+    }
 
     public DatabaseDAO(String url, String username, String password) {
+        this(url, username, password, DEFAULT_POOL_SIZE, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a DatabaseDAO with a configurable pool and batch chunk size.
+     *
+     * @param url       the JDBC URL of the database
+     * @param username  the database user
+     * @param password  the database password
+     * @param poolSize  the maximum number of pooled connections
+     * @param chunkSize the number of rows written per batch and transaction
+     */
+    public DatabaseDAO(String url, String username, String password, int poolSize, int chunkSize) {
         this.url = url;
         this.username = username;
         this.password = password;
+        this.poolSize = Math.max(1, poolSize);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Creates a DatabaseDAO configured from the .env file. DB_USER and
+     * DB_PASSWORD are required; DB_URL, DB_POOL_SIZE and DB_BATCH_CHUNK_SIZE
+     * override the defaults.
+     *
+     * @return The configured DatabaseDAO, not yet connected.
+     */
+    public static DatabaseDAO fromConfig() {
+        Dotenv dotenv = Dotenv.configure()
+                .directory("src/main/resources")
+                .load();
+        int poolSize = DEFAULT_POOL_SIZE;
+        int chunkSize = DEFAULT_CHUNK_SIZE;
+        try {
+            poolSize = Integer.parseInt(dotenv.get("DB_POOL_SIZE", String.valueOf(poolSize)).trim());
+            chunkSize = Integer.parseInt(dotenv.get("DB_BATCH_CHUNK_SIZE", String.valueOf(chunkSize)).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid database setting, using defaults: " + e.getMessage());
+        }
+        return new DatabaseDAO(dotenv.get("DB_URL", DEFAULT_URL), dotenv.get("DB_USER"), dotenv.get("DB_PASSWORD"),
+                poolSize, chunkSize);
     }
 
     public void deleteOldEvents() {
         String query = "DELETE FROM Events WHERE Date < ?";
 
-        try (PreparedStatement statement = connection.prepareStatement(query)) {
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(query)) {
             Date currentDate = getCurrentDate();
             statement.setDate(1, currentDate);
 
@@ -42,145 +150,899 @@ public class DatabaseDAO {
         }
     }
 
+    /**
+     * Loads the upcoming events that are already stored, with the price,
+     * image, lineup and page validators needed to tell whether they have changed.
+     *
+     * @return The stored events keyed by event ID, or an empty map if they
+     *         could not be loaded.
+     */
+    public Map<String, KnownEvent> loadKnownEvents() {
+        String query = "SELECT LOWER(HEX(EventKey)) AS EventID, Price, ImageUrl, Lineup, ETag, LastModified " +
+                "FROM Events WHERE Date >= ?";
+        Map<String, KnownEvent> knownEvents = new HashMap<>();
+
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setDate(1, getCurrentDate());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    String eventID = resultSet.getString("EventID");
+                    knownEvents.put(eventID, new KnownEvent(eventID, resultSet.getString("Price"),
+                            resultSet.getString("ImageUrl"), resultSet.getString("Lineup"), resultSet.getString("ETag"),
+                            resultSet.getString("LastModified")));
+                }
+            }
+            System.out.println("Loaded " + knownEvents.size() + " known events from the database.");
+        } catch (SQLException e) {
+            System.err.println("Problem with loading known events.");
+            e.printStackTrace();
+        }
+        return knownEvents;
+    }
+
+    /**
+     * Loads the fingerprints of the stored events and artists in bulk, so that
+     * rows that have not changed can be skipped instead of rewritten. Rows
+     * stored before fingerprints were introduced have none and are rewritten
+     * once.
+     */
+    public void loadFingerprints() {
+        loadFingerprints("SELECT LOWER(HEX(EventKey)), Fingerprint FROM Events", eventFingerprints);
+        loadFingerprints("SELECT ArtistID, Fingerprint FROM Artists", artistFingerprints);
+        System.out.println("Loaded fingerprints of " + eventFingerprints.size() + " events and "
+                + artistFingerprints.size() + " artists.");
+    }
+
+    private void loadFingerprints(String query, Map<String, Long> fingerprints) {
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(query);
+                ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                long fingerprint = resultSet.getLong(2);
+                fingerprints.put(resultSet.getString(1), resultSet.wasNull() ? null : fingerprint);
+            }
+        } catch (SQLException e) {
+            System.err.println("Problem with loading fingerprints.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Prints how many events and artists were inserted, updated and skipped
+     * as unchanged since the DatabaseDAO was created.
+     */
+    public void printWriteStats() {
+        System.out.println("Events: " + eventCounts + ".");
+        System.out.println("Artists: " + artistCounts + ".");
+    }
+
     private Date getCurrentDate() {
         LocalDate currentDate = LocalDate.now();
         return Date.valueOf(currentDate);
     }
 
-    public void insertArtists(List<Artist> artists) {
-        String query = "INSERT IGNORE INTO Artists (ArtistID, Name, HasSpotifyProfile, PopularityScore, ExternalUrl, Genres) " +
-                "VALUES (?, ?, ?, ?, ?, ?)";
+    /**
+     * Writes the artists whose fingerprint differs from the stored one, in
+     * chunks that are each one transaction.
+     *
+     * @param artists The artists to write.
+     * @return The artists that are now stored: the unchanged ones and those in
+     *         chunks that were committed. Artists in rolled back chunks are
+     *         left out so they can be written again.
+     */
+    public List<Artist> insertArtists(List<Artist> artists) {
+        String query = "INSERT IGNORE INTO Artists (ArtistID, Name, HasSpotifyProfile, PopularityScore, ExternalUrl, Genres, " +
+                "Fingerprint) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE Name = VALUES(Name), HasSpotifyProfile = VALUES(HasSpotifyProfile), " +
+                "PopularityScore = VALUES(PopularityScore), ExternalUrl = VALUES(ExternalUrl), " +
+                "Genres = VALUES(Genres), Fingerprint = VALUES(Fingerprint)";
 
-        try (PreparedStatement statement = connection.prepareStatement(query)) {
-            for (Artist artist : artists) {
-                statement.setString(1, artist.getArtistID());
-                statement.setString(2, artist.getName());
-                statement.setBoolean(3, artist.getHasArtistProfile());
-                statement.setInt(4, artist.getPopularityScore());
-                statement.setString(5, artist.getExternalUrl());
-                statement.setString(6, artist.getArtistGenresAsString());
+        List<Artist> changed = changedRows(artists, artistFingerprints, Artist::getArtistID,
+                Artist::getFingerprint, artistCounts);
+        Set<Artist> toWrite = Collections.newSetFromMap(new IdentityHashMap<>());
+        toWrite.addAll(changed);
+        List<Artist> stored = new ArrayList<>();
+        for (Artist artist : artists) {
+            if (!toWrite.contains(artist)) {
+                stored.add(artist);
+            }
+        }
+        executeInChunks("artists", query, changed, (statement, artist) -> {
+            statement.setString(1, artist.getArtistID());
+            statement.setString(2, artist.getName());
+            statement.setBoolean(3, artist.getHasArtistProfile());
+            statement.setInt(4, artist.getPopularityScore());
+            statement.setString(5, artist.getExternalUrl());
+            statement.setString(6, artist.getArtistGenresAsString());
+            statement.setLong(7, artist.getFingerprint());
+        }, committed -> {
+            recordWritten(committed, artistFingerprints, Artist::getArtistID, Artist::getFingerprint, artistCounts);
+            stored.addAll(committed);
+        });
+        return stored;
+    }
 
-                statement.addBatch();
+    /**
+     * Writes the events whose fingerprint differs from the stored one, in
+     * chunks that are each one transaction.
+     *
+     * @param events The events to write.
+     * @return The events that were written and committed; unchanged events
+     *         and events in rolled back chunks are left out.
+     */
+    public List<Event> insertEvents(List<Event> events) {
+        String query = "INSERT IGNORE INTO Events (EventKey, EventName, Date, Location, Price, Link, ImageUrl, Lineup, " +
+                "ETag, LastModified, Fingerprint, PriceMinor, PriceCurrency, IsFree, IsSoldOut) " +
+                "VALUES (UNHEX(?), ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)" +
+                "ON DUPLICATE KEY UPDATE EventName = VALUES(EventName), Date = VALUES(Date), Location = VALUES(Location), "
+                +
+                "Price = CASE WHEN Price <> VALUES(Price) THEN VALUES(Price) ELSE Price END, " +
+                "Link = VALUES(Link), ImageUrl = VALUES(ImageUrl), Lineup = VALUES(Lineup), " +
+                "ETag = VALUES(ETag), LastModified = VALUES(LastModified), Fingerprint = VALUES(Fingerprint), " +
+                "PriceMinor = VALUES(PriceMinor), PriceCurrency = VALUES(PriceCurrency), IsFree = VALUES(IsFree), " +
+                "IsSoldOut = VALUES(IsSoldOut)";
 
+        List<Event> changed = changedRows(events, eventFingerprints, Event::getEventID, Event::getFingerprint,
+                eventCounts);
+        List<Event> written = new ArrayList<>();
+        executeInChunks("events", query, changed, (statement, event) -> {
+            statement.setString(1, event.getEventID());
+            statement.setString(2, event.getEventName());
+            statement.setDate(3, event.getDate());
+            statement.setString(4, event.getLocation());
+            statement.setString(5, event.getPrice());
+            statement.setString(6, event.getLink());
+            statement.setString(7, event.getImageUrl());
+            statement.setString(8, event.getLineupAsString());
+            statement.setString(9, event.getPageETag());
+            statement.setString(10, event.getPageLastModified());
+            statement.setLong(11, event.getFingerprint());
+            TicketPrice ticketPrice = event.getTicketPrice();
+            if (ticketPrice.getAmountMinor() != null) {
+                statement.setInt(12, ticketPrice.getAmountMinor());
+            } else {
+                statement.setNull(12, Types.INTEGER);
             }
+            statement.setString(13, ticketPrice.getCurrency());
+            statement.setBoolean(14, ticketPrice.isFree());
+            statement.setBoolean(15, ticketPrice.isSoldOut());
+        }, committed -> {
+            recordWritten(committed, eventFingerprints, Event::getEventID, Event::getFingerprint, eventCounts);
+            written.addAll(committed);
+        });
+        return written;
+    }
 
-            statement.executeBatch();
-            System.out.println("Artists inserted into the database.");
+    public void insertTracks(List<Artist> artists) {
+        String query = "INSERT IGNORE INTO Tracks (TrackID, TrackName, ArtistID) VALUES (?, ?, ?)";
+
+        List<String[]> tracks = new ArrayList<>();
+        for (Artist artist : artists) {
+            String[] trackIDs = artist.getTopTrackIDs();
+            String[] trackTitles = artist.getTopTrackTitles();
+            String artistID = artist.getArtistID();
 
+            if (trackIDs != null && trackTitles != null && artistID != null) {
+                for (int i = 0; i < trackIDs.length; i++) {
+                    tracks.add(new String[] { trackIDs[i], trackTitles[i], artistID });
+                }
+            }
+        }
+
+        executeInChunks("tracks", query, tracks, (statement, track) -> {
+            statement.setString(1, track[0]);
+            statement.setString(2, track[1]);
+            statement.setString(3, track[2]);
+        });
+    }
+
+    /**
+     * Writes the lineup of each event to the EventArtist association table,
+     * one row per artist with their 1-based position in the lineup. Artists
+     * without a Spotify profile have no ID and are skipped, so positions can
+     * have gaps. The events are written in chunks of at most chunkSize, and
+     * each chunk is one transaction that deletes every row of its events
+     * before inserting their current lineups, so no row from an earlier
+     * lineup survives and a failed chunk leaves the old lineups in place.
+     * Only the events insertEvents returned should be passed in: their
+     * fingerprint covers the lineup's artist IDs, so unchanged lineups are not
+     * rewritten. If a chunk fails, the fingerprints of its events are cleared
+     * so that they are written again on the next run.
+     * Events with an artist whose lookup failed are left out, so a throttled
+     * lookup keeps the stored lineup instead of dropping that artist from it.
+     *
+     * @param events The written events whose lineups should be replaced.
+     */
+    public void insertEventArtists(List<Event> events) {
+        String deleteQuery = "DELETE FROM EventArtist WHERE EventKey = UNHEX(?)";
+        String insertQuery = "INSERT INTO EventArtist (EventKey, ArtistID, Position) VALUES (UNHEX(?), ?, ?) " +
+                "ON DUPLICATE KEY UPDATE ArtistID = VALUES(ArtistID)";
+        List<Event> complete = new ArrayList<>();
+        for (Event event : events) {
+            if (event.hasCompleteArtists()) {
+                complete.add(event);
+            }
+        }
+        events = complete;
+        if (events.isEmpty()) {
+            return;
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement deleteStatement = connection.prepareStatement(deleteQuery);
+                    PreparedStatement insertStatement = connection.prepareStatement(insertQuery)) {
+                for (int from = 0; from < events.size(); from += chunkSize) {
+                    List<Event> chunk = events.subList(from, Math.min(events.size(), from + chunkSize));
+                    long start = System.nanoTime();
+                    int rows = 0;
+                    try {
+                        for (Event event : chunk) {
+                            deleteStatement.setString(1, event.getEventID());
+                            deleteStatement.addBatch();
+                            for (EventArtistRow association : lineupRows(event)) {
+                                insertStatement.setString(1, association.eventID);
+                                insertStatement.setString(2, association.artistID);
+                                insertStatement.setInt(3, association.position);
+                                insertStatement.addBatch();
+                                rows++;
+                            }
+                        }
+                        deleteStatement.executeBatch();
+                        insertStatement.executeBatch();
+                        connection.commit();
+
+                        RunMetrics.record("db.batch", start, "committed", "table", "event artists");
+                        batchRows("event artists").record(rows);
+                        long millis = (System.nanoTime() - start) / 1_000_000;
+                        BATCH_LOG.log("Replaced the lineups of " + chunk.size() + " events (" + rows
+                                + " event artists) in " + millis + " ms.");
+                    } catch (SQLException e) {
+                        connection.rollback();
+                        deleteStatement.clearBatch();
+                        insertStatement.clearBatch();
+                        RunMetrics.record("db.batch", start, "rolled_back", "table", "event artists");
+                        System.err.println("Problem with inserting event artists, rolled back the lineups of "
+                                + chunk.size() + " events.");
+                        e.printStackTrace();
+                        forgetFingerprints(connection, chunk);
+                    }
+                }
+            } finally {
+                connection.setAutoCommit(true);
+            }
         } catch (SQLException e) {
-            System.err.println("Problem with inserting artists.");
+            System.err.println("Problem with inserting event artists.");
             e.printStackTrace();
         }
     }
 
-    public void insertEvents(List<Event> events) {
-        String query = "INSERT IGNORE INTO Events (EventID, EventName, Date, Location, Price, Link, ImageUrl, Lineup) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)" +
-                "ON DUPLICATE KEY UPDATE EventName = VALUES(EventName), Date = VALUES(Date), Location = VALUES(Location), "
-                +
-                "Price = CASE WHEN Price <> VALUES(Price) THEN VALUES(Price) ELSE Price END, " +
-                "Link = VALUES(Link), ImageUrl = VALUES(ImageUrl)";
-
+    /**
+     * Clears the stored fingerprints of events whose lineups could not be
+     * written, so the next run sees them as changed instead of skipping them.
+     */
+    private void forgetFingerprints(Connection connection, List<Event> events) {
+        String query = "UPDATE Events SET Fingerprint = NULL WHERE EventKey = UNHEX(?)";
         try (PreparedStatement statement = connection.prepareStatement(query)) {
             for (Event event : events) {
-
                 statement.setString(1, event.getEventID());
-                statement.setString(2, event.getEventName());
-                statement.setDate(3, event.getDate());
-                statement.setString(4, event.getLocation());
-                statement.setString(5, event.getPrice());
-                statement.setString(6, event.getLink());
-                statement.setString(7, event.getImageUrl());
-                statement.setString(8, event.getLineupAsString());
-
                 statement.addBatch();
+                eventFingerprints.put(event.getEventID(), null);
             }
-
             statement.executeBatch();
-            System.out.println("Events inserted into the database.");
+            connection.commit();
         } catch (SQLException e) {
-            System.err.println("Problem with inserting events.");
+            System.err.println("Problem with clearing the fingerprints of " + events.size() + " events.");
             e.printStackTrace();
         }
     }
 
-    public void insertTracks(List<Artist> artists) {
-        String query = "INSERT IGNORE INTO Tracks (TrackID, TrackName, ArtistID) VALUES (?, ?, ?)";
+    /**
+     * Returns the EventArtist rows of an event's lineup, leaving out artists
+     * without an ID.
+     */
+    private static List<EventArtistRow> lineupRows(Event event) {
+        List<EventArtistRow> rows = new ArrayList<>();
+        List<Artist> artists = event.getArtists();
+        for (int i = 0; i < artists.size(); i++) {
+            String artistID = artists.get(i).getArtistID();
+            if (artistID != null) {
+                rows.add(new EventArtistRow(event.getEventID(), artistID, i + 1));
+            }
+        }
+        return rows;
+    }
 
-        try (PreparedStatement statement = connection.prepareStatement(query)) {
-            for (Artist artist : artists) {
-                String[] trackIDs = artist.getTopTrackIDs();
-                String[] trackTitles = artist.getTopTrackTitles();
-                String artistID = artist.getArtistID();
+    /**
+     * Finds the upcoming events an artist is playing, using the artist side of
+     * the EventArtist index.
+     *
+     * @param artistID The Spotify ID of the artist.
+     * @return The IDs of the artist's upcoming events, soonest first, or an
+     *         empty list if they could not be loaded.
+     */
+    public List<String> findEventIDsByArtist(String artistID) {
+        String query = "SELECT LOWER(HEX(ea.EventKey)) FROM EventArtist ea JOIN Events e ON e.EventKey = ea.EventKey " +
+                "WHERE ea.ArtistID = ? AND e.Date >= ? ORDER BY e.Date, ea.EventKey";
+
+        List<String> eventIDs = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setString(1, artistID);
+            statement.setDate(2, getCurrentDate());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    eventIDs.add(resultSet.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Problem with finding the events of artist " + artistID + ".");
+            e.printStackTrace();
+        }
+        return eventIDs;
+    }
+
+    /**
+     * Finds the artists playing an event, in lineup order, using the event
+     * side of the EventArtist index.
+     *
+     * @param eventID The ID of the event.
+     * @return The Spotify IDs of the event's artists, or an empty list if they
+     *         could not be loaded.
+     */
+    public List<String> findArtistIDsByEvent(String eventID) {
+        String query = "SELECT ArtistID FROM EventArtist WHERE EventKey = UNHEX(?) ORDER BY Position";
+
+        List<String> artistIDs = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setString(1, eventID);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    artistIDs.add(resultSet.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Problem with finding the artists of event " + eventID + ".");
+            e.printStackTrace();
+        }
+        return artistIDs;
+    }
 
-                if (trackIDs != null && trackTitles != null && artistID != null) {
-                    for (int i = 0; i < trackIDs.length; i++) {
-                        String trackID = trackIDs[i];
-                        String trackTitle = trackTitles[i];
+    /**
+     * Reads a page of upcoming events in (Date, EventID) order using keyset
+     * pagination: the page starts after the given key instead of skipping an
+     * OFFSET, so every page costs the same index range scan however deep it
+     * is.
+     *
+     * @param afterDate    The date of the last event of the previous page, or
+     *                     null for the first page.
+     * @param afterEventID The ID of the last event of the previous page, or
+     *                     null for the first page.
+     * @param limit        The maximum number of events to return.
+     * @return The events of the page, or an empty list if they could not be
+     *         loaded.
+     */
+    public List<EventRecord> findUpcomingEvents(LocalDate afterDate, String afterEventID, int limit) {
+        String query = "SELECT " + EVENT_COLUMNS + " FROM Events " +
+                "WHERE Date >= ? AND (Date > ? OR (Date = ? AND EventKey > UNHEX(?))) " +
+                "ORDER BY Date, EventKey LIMIT ?";
 
-                        statement.setString(1, trackID);
-                        statement.setString(2, trackTitle);
-                        statement.setString(3, artistID);
+        // The first page starts before the first of today's events, since no
+        // key sorts before the empty string
+        Date fromDate = afterDate == null ? getCurrentDate() : Date.valueOf(afterDate);
+        String fromEventID = afterDate == null || afterEventID == null ? "" : afterEventID;
 
-                        statement.addBatch();
+        List<EventRecord> events = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setDate(1, getCurrentDate());
+            statement.setDate(2, fromDate);
+            statement.setDate(3, fromDate);
+            statement.setString(4, fromEventID);
+            statement.setInt(5, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    events.add(toEventRecord(resultSet));
+                }
+            }
+            return attachArtists(connection, events);
+        } catch (SQLException e) {
+            System.err.println("Problem with loading upcoming events.");
+            e.printStackTrace();
+            return events;
+        }
+    }
+
+    /**
+     * Reads every upcoming event in (Date, EventID) order, with the artist IDs
+     * and genres of their lineups, to build an in-memory EventStore from.
+     *
+     * @return The upcoming events, or null if they could not be loaded, so
+     *         that callers can tell a failed load from no upcoming events.
+     */
+    public List<EventRecord> loadUpcomingEventRecords() {
+        String query = "SELECT " + EVENT_COLUMNS + " FROM Events WHERE Date >= ? ORDER BY Date, EventKey";
+
+        List<EventRecord> events = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setDate(1, getCurrentDate());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    events.add(toEventRecord(resultSet));
+                }
+            }
+            return attachArtists(connection, events);
+        } catch (SQLException e) {
+            System.err.println("Problem with loading upcoming events.");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Reads the events between two dates, using the (Date, EventKey) index.
+     *
+     * @param from  The first date, inclusive.
+     * @param to    The last date, inclusive.
+     * @param limit The maximum number of events to return.
+     * @return The events, soonest first, or an empty list if they could not be
+     *         loaded.
+     */
+    public List<EventRecord> findEventsByDate(LocalDate from, LocalDate to, int limit) {
+        String query = "SELECT " + EVENT_COLUMNS + " FROM Events WHERE Date BETWEEN ? AND ? " +
+                "ORDER BY Date, EventKey LIMIT ?";
+
+        List<EventRecord> events = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setDate(1, Date.valueOf(from));
+            statement.setDate(2, Date.valueOf(to));
+            statement.setInt(3, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    events.add(toEventRecord(resultSet));
+                }
+            }
+            return attachArtists(connection, events);
+        } catch (SQLException e) {
+            System.err.println("Problem with loading events by date.");
+            e.printStackTrace();
+            return events;
+        }
+    }
+
+    /**
+     * Reads the upcoming events whose price is within a range, using the
+     * (PriceMinor, Date) index. Free events have a price of 0 and match in
+     * any currency, events whose price is unknown never match, and sold out
+     * events are left out.
+     *
+     * @param currency The ISO 4217 code of the prices, for example "USD".
+     * @param minMinor The lowest price in minor units (cents), inclusive.
+     * @param maxMinor The highest price in minor units, inclusive.
+     * @param from     The first date, inclusive.
+     * @param to       The last date, inclusive.
+     * @param limit    The maximum number of events to return.
+     * @return The events, soonest first, or an empty list if they could not be
+     *         loaded.
+     */
+    public List<EventRecord> findEventsByPrice(String currency, int minMinor, int maxMinor, LocalDate from,
+            LocalDate to, int limit) {
+        String query = "SELECT " + EVENT_COLUMNS + " FROM Events " +
+                "WHERE PriceMinor BETWEEN ? AND ? AND Date BETWEEN ? AND ? AND NOT IsSoldOut " +
+                "AND (PriceCurrency = ? OR IsFree) " +
+                "ORDER BY Date, EventKey LIMIT ?";
+
+        List<EventRecord> events = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setInt(1, minMinor);
+            statement.setInt(2, maxMinor);
+            statement.setDate(3, Date.valueOf(from));
+            statement.setDate(4, Date.valueOf(to));
+            statement.setString(5, currency);
+            statement.setInt(6, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    events.add(toEventRecord(resultSet));
+                }
+            }
+            return attachArtists(connection, events);
+        } catch (SQLException e) {
+            System.err.println("Problem with loading events by price.");
+            e.printStackTrace();
+            return events;
+        }
+    }
+
+    /**
+     * Reads a single event.
+     *
+     * @param eventID The ID of the event.
+     * @return The event, or null if it does not exist or could not be loaded.
+     */
+    public EventRecord findEvent(String eventID) {
+        String query = "SELECT " + EVENT_COLUMNS + " FROM Events WHERE EventKey = UNHEX(?)";
+        if (!EventKey.isEventID(eventID)) {
+            return null;
+        }
+
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setString(1, eventID);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                return attachArtists(connection, Collections.singletonList(toEventRecord(resultSet))).get(0);
+            }
+        } catch (SQLException e) {
+            System.err.println("Problem with loading event " + eventID + ".");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Reads a single artist along with the IDs of their upcoming events.
+     *
+     * @param artistID The Spotify ID of the artist.
+     * @return The artist, or null if they do not exist or could not be loaded.
+     */
+    public ArtistRecord findArtist(String artistID) {
+        String query = "SELECT ArtistID, Name, HasSpotifyProfile, PopularityScore, ExternalUrl, Genres FROM Artists " +
+                "WHERE ArtistID = ?";
+
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setString(1, artistID);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                return new ArtistRecord(resultSet.getString("ArtistID"), resultSet.getString("Name"),
+                        resultSet.getBoolean("HasSpotifyProfile"), resultSet.getInt("PopularityScore"),
+                        resultSet.getString("ExternalUrl"), splitList(resultSet.getString("Genres")),
+                        findEventIDsByArtist(artistID));
+            }
+        } catch (SQLException e) {
+            System.err.println("Problem with loading artist " + artistID + ".");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private EventRecord toEventRecord(ResultSet resultSet) throws SQLException {
+        return new EventRecord(resultSet.getString("EventID"), resultSet.getString("EventName"),
+                resultSet.getDate("Date").toLocalDate(), resultSet.getString("Location"),
+                resultSet.getString("Price"), resultSet.getString("Link"), resultSet.getString("ImageUrl"),
+                splitList(resultSet.getString("Lineup")));
+    }
+
+    /**
+     * Adds the artist IDs, genres and highest popularity score of each
+     * event's lineup, read from the EventArtist table in chunks of event IDs.
+     *
+     * @return Copies of the events with their lineup artists.
+     */
+    private List<EventRecord> attachArtists(Connection connection, List<EventRecord> events) throws SQLException {
+        Map<String, List<String>> artistIDs = new HashMap<>();
+        Map<String, Set<String>> genres = new HashMap<>();
+        Map<String, Integer> popularityScores = new HashMap<>();
+        for (int from = 0; from < events.size(); from += chunkSize) {
+            List<EventRecord> chunk = events.subList(from, Math.min(events.size(), from + chunkSize));
+            String query = "SELECT LOWER(HEX(ea.EventKey)), ea.ArtistID, a.Genres, a.PopularityScore " +
+                    "FROM EventArtist ea LEFT JOIN Artists a ON a.ArtistID = ea.ArtistID " +
+                    "WHERE ea.EventKey IN (" + String.join(", ", Collections.nCopies(chunk.size(), "UNHEX(?)")) +
+                    ") ORDER BY ea.EventKey, ea.Position";
+
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    statement.setString(i + 1, chunk.get(i).getEventID());
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        String eventID = resultSet.getString(1);
+                        artistIDs.computeIfAbsent(eventID, id -> new ArrayList<>()).add(resultSet.getString(2));
+                        genres.computeIfAbsent(eventID, id -> new LinkedHashSet<>())
+                                .addAll(splitList(resultSet.getString(3)));
+                        popularityScores.merge(eventID, resultSet.getInt(4), Math::max);
                     }
                 }
+            }
+        }
 
+        List<EventRecord> withArtists = new ArrayList<>(events.size());
+        for (EventRecord event : events) {
+            withArtists.add(event.withArtists(artistIDs.getOrDefault(event.getEventID(), Collections.emptyList()),
+                    new ArrayList<>(genres.getOrDefault(event.getEventID(), Collections.emptySet())),
+                    popularityScores.getOrDefault(event.getEventID(), 0)));
+        }
+        return withArtists;
+    }
+
+    /**
+     * Splits a comma-separated column back into its values.
+     */
+    private static List<String> splitList(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>();
+        for (String part : Arrays.asList(value.split(","))) {
+            if (!part.trim().isEmpty()) {
+                values.add(part.trim());
             }
+        }
+        return values;
+    }
 
-            statement.executeBatch();
-            System.out.println("Tracks inserted into the database.");
+    /**
+     * Fills in the EventKey of events stored before event keys were
+     * introduced, and of their EventArtist rows, from each event's name, date
+     * and location. Run once between the 005 and 006 migrations; rows that
+     * already have a key are left alone, so it can safely be run again.
+     *
+     * @return The number of events that were given a key.
+     */
+    public int backfillEventKeys() {
+        String selectQuery = "SELECT EventID, EventName, Date, Location FROM Events WHERE EventKey IS NULL";
+        String updateQuery = "UPDATE Events SET EventKey = UNHEX(?) WHERE EventID = ?";
+        String associationQuery = "UPDATE EventArtist ea JOIN Events e ON e.EventID = ea.EventID " +
+                "SET ea.EventKey = e.EventKey WHERE ea.EventKey IS NULL";
+
+        List<String[]> keys = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(selectQuery);
+                ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                String eventID = Event.generateEventID(resultSet.getString("EventName"), resultSet.getDate("Date"),
+                        resultSet.getString("Location"));
+                keys.add(new String[] { eventID, resultSet.getString("EventID") });
+            }
+        } catch (SQLException e) {
+            System.err.println("Problem with loading events without a key.");
+            e.printStackTrace();
+            return 0;
+        }
+
+        // A chunk fails as a whole if two events get the same key, which the
+        // unique index added by the 005 migration reports
+        int written = executeInChunks("event keys", updateQuery, keys, (statement, key) -> {
+            statement.setString(1, key[0]);
+            statement.setString(2, key[1]);
+        });
+        if (written < keys.size()) {
+            System.err.println((keys.size() - written) + " events could not be given a key; "
+                    + "resolve them before running the 006 migration.");
+        }
+
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(associationQuery)) {
+            System.out.println("Keyed " + statement.executeUpdate() + " event artists.");
+        } catch (SQLException e) {
+            System.err.println("Problem with keying the event artists.");
+            e.printStackTrace();
+        }
+        return written;
+    }
+
+    /**
+     * Records that a scrape run has finished and its events are committed.
+     * Readers watch the latest run ID to know when their cached responses are
+     * out of date.
+     *
+     * @param eventCount The number of events the run stored.
+     */
+    public void recordScrapeRun(int eventCount) {
+        String query = "INSERT INTO ScrapeRuns (FinishedAt, EventCount) VALUES (NOW(), ?)";
+
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setInt(1, eventCount);
+            statement.executeUpdate();
         } catch (SQLException e) {
-            System.err.println("Problem with inserting tracks.");
-            // Handle any additional exceptions that occur during the catch block
-            SQLException nextException = e.getNextException();
-            if (nextException != null) {
-                System.err.println("Additional exception occurred:");
-                nextException.printStackTrace();
+            System.err.println("Problem with recording the scrape run.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns whether the Events table is keyed by EventKey, that is whether
+     * both the 005 and the 006 migrations have run. The scraper writes
+     * EventKey only, so it must not write to a table where EventID is still
+     * the required primary key.
+     *
+     * @return true if Events has an EventKey column and no EventID column;
+     *         false otherwise, or if the schema could not be read.
+     */
+    public boolean hasEventKeySchema() {
+        String query = "SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'Events' AND COLUMN_NAME IN ('EventID', 'EventKey')";
+
+        boolean hasEventID = false;
+        boolean hasEventKey = false;
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(query);
+                ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                String column = resultSet.getString(1);
+                hasEventID |= "EventID".equalsIgnoreCase(column);
+                hasEventKey |= "EventKey".equalsIgnoreCase(column);
             }
+        } catch (SQLException e) {
+            System.err.println("Problem with reading the schema of the Events table.");
+            e.printStackTrace();
+            return false;
         }
+        return hasEventKey && !hasEventID;
     }
 
-    public void insertEventArtists(List<Event> events) {
-        String query = "INSERT IGNORE INTO EventArtists (EventID, ArtistID1, ArtistID2, ArtistID3) VALUES (?, ?, ?, ?)";
-        
-        try (PreparedStatement statement = connection.prepareStatement(query)) {
-            for (Event event : events) {
+    /**
+     * Returns the ID of the most recently finished scrape run.
+     *
+     * @return The run ID, 0 if no run has finished yet, or -1 if it could not
+     *         be loaded.
+     */
+    public long getLatestScrapeRunID() {
+        String query = "SELECT COALESCE(MAX(RunID), 0) FROM ScrapeRuns";
 
-                statement.setString(1, event.getEventID());
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(query);
+                ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        } catch (SQLException e) {
+            System.err.println("Problem with loading the latest scrape run.");
+            e.printStackTrace();
+            return -1;
+        }
+    }
 
-                statement.setString(2, event.getArtistID(1));
-                statement.setString(3, event.getArtistID(2));
-                statement.setString(4, event.getArtistID(3));
+    /**
+     * Picks out the rows that are new or whose fingerprint differs from the
+     * stored one, and counts the rest as unchanged. Rows without an ID cannot
+     * be compared and are always written.
+     */
+    private <T> List<T> changedRows(List<T> rows, Map<String, Long> stored, Function<T, String> id,
+            ToLongFunction<T> fingerprint, WriteCounts counts) {
+        List<T> changed = new ArrayList<>();
+        for (T row : rows) {
+            String key = id.apply(row);
+            Long storedFingerprint = key == null ? null : stored.get(key);
+            if (storedFingerprint != null && storedFingerprint == fingerprint.applyAsLong(row)) {
+                counts.unchanged++;
+            } else {
+                changed.add(row);
+            }
+        }
+        return changed;
+    }
 
-                statement.addBatch();
+    /**
+     * Records the fingerprints of rows that were committed and counts them as
+     * inserted or updated.
+     */
+    private <T> void recordWritten(List<T> committed, Map<String, Long> stored, Function<T, String> id,
+            ToLongFunction<T> fingerprint, WriteCounts counts) {
+        for (T row : committed) {
+            String key = id.apply(row);
+            if (key != null && stored.containsKey(key)) {
+                counts.updated++;
+            } else {
+                counts.inserted++;
+            }
+            if (key != null) {
+                stored.put(key, fingerprint.applyAsLong(row));
             }
+        }
+    }
 
-            statement.executeBatch();
-            System.out.println("Events inserted into the database.");
+    private static DistributionSummary batchRows(String label) {
+        return DistributionSummary.builder("db.batch.rows")
+                .tag("table", label)
+                .register(RunMetrics.registry());
+    }
+
+    private <T> int executeInChunks(String label, String query, List<T> items, StatementBinder<T> binder) {
+        return executeInChunks(label, query, items, binder, committed -> {
+        });
+    }
+
+    /**
+     * Writes a list of items with a batched statement, in chunks of at most
+     * chunkSize rows. Each chunk is its own transaction: if any row in it
+     * fails, the whole chunk is rolled back and the remaining chunks are still
+     * written. With rewriteBatchedStatements=true on the JDBC URL, the driver
+     * sends each chunk as multi-row INSERT statements. The time taken by each
+     * chunk and its outcome are recorded in the db.batch timer, and a sample
+     * of the chunks is logged.
+     *
+     * @param label    What is being written, for logging.
+     * @param query    The statement to execute for each item.
+     * @param items    The items to write.
+     * @param binder   Binds an item to the statement's parameters.
+     * @param onCommit Called with each chunk after it has been committed.
+     * @param <T>      The type of the items.
+     * @return The number of items in chunks that were committed.
+     */
+    private <T> int executeInChunks(String label, String query, List<T> items, StatementBinder<T> binder,
+            Consumer<List<T>> onCommit) {
+        if (items.isEmpty()) {
+            return 0;
+        }
+
+        int written = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                for (int from = 0; from < items.size(); from += chunkSize) {
+                    List<T> chunk = items.subList(from, Math.min(items.size(), from + chunkSize));
+                    long start = System.nanoTime();
+                    try {
+                        for (T item : chunk) {
+                            binder.bind(statement, item);
+                            statement.addBatch();
+                        }
+                        statement.executeBatch();
+                        connection.commit();
+                        written += chunk.size();
+                        onCommit.accept(chunk);
+
+                        RunMetrics.record("db.batch", start, "committed", "table", label);
+                        batchRows(label).record(chunk.size());
+                        long millis = (System.nanoTime() - start) / 1_000_000;
+                        BATCH_LOG.log("Inserted " + chunk.size() + " " + label + " in " + millis + " ms.");
+                    } catch (SQLException e) {
+                        connection.rollback();
+                        statement.clearBatch();
+                        RunMetrics.record("db.batch", start, "rolled_back", "table", label);
+                        System.err.println("Problem with inserting " + label + ", rolled back " + chunk.size()
+                                + " rows.");
+                        e.printStackTrace();
+                        SQLException nextException = e.getNextException();
+                        if (nextException != null) {
+                            System.err.println("Additional exception occurred:");
+                            nextException.printStackTrace();
+                        }
+                    }
+                }
+            } finally {
+                connection.setAutoCommit(true);
+            }
         } catch (SQLException e) {
-            System.err.println("Problem with inserting events.");
+            System.err.println("Problem with inserting " + label + ".");
             e.printStackTrace();
         }
+        return written;
     }
 
     public void connect() {
+        if (dataSource != null && !dataSource.isClosed()) {
+            return;
+        }
         try {
-            connection = DriverManager.getConnection(url, username, password);
+            HikariConfig config = new HikariConfig();
+            config.setJdbcUrl(url);
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setMaximumPoolSize(poolSize);
+            config.setPoolName("nyc-events");
+            config.setMetricRegistry(RunMetrics.registry());
+            dataSource = new HikariDataSource(config);
             System.out.println("Connected to the database.");
-        } catch (SQLException e) {
+        } catch (RuntimeException e) {
             e.printStackTrace();
         }
     }
 
     public void disconnect() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Disconnected from the database.");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        if (dataSource != null && !dataSource.isClosed()) {
+            dataSource.close();
+            System.out.println("Disconnected from the database.");
         }
     }
 
@@ -0,0 +1,218 @@
+package com.caseybrugna.nyc_events;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads events out of the Next.js page state that Dice embeds in its browse
+ * pages, so events can be scraped with a plain HTTP request instead of a
+ * browser.
+ * The page state is a JSON blob in the script tag with the ID __NEXT_DATA__.
+ * Rather than depend on its exact nesting, which changes between releases, the
+ * parser walks the whole tree and treats every object with a name, a
+ * perm_name and dates as an event.
+ */
+public class DicePageDataParser {
+    private static final String EVENT_URL_PREFIX = "https://dice.fm/event/";
+
+    private DicePageDataParser() {
+    }
+
+    /**
+     * Extracts the event cards from the HTML of a Dice browse page.
+     *
+     * @param html The HTML of the browse page.
+     * @return A list of EventCard objects, or an empty list if the page has no
+     *         embedded page state or it could not be read.
+     */
+    public static List<EventCard> parseEventCards(String html) {
+        List<EventCard> cards = new ArrayList<>();
+        Document document = Jsoup.parse(html);
+        Element pageData = document.selectFirst("script#__NEXT_DATA__");
+        if (pageData == null) {
+            return cards;
+        }
+
+        try {
+            JsonElement root = JsonParser.parseString(pageData.data());
+            collectEvents(root, cards, new HashSet<>());
+        } catch (JsonParseException | IllegalStateException e) {
+            System.err.println("An error occurred while reading the page data: " + e.getMessage());
+        }
+        return cards;
+    }
+
+    /**
+     * Walks the JSON tree depth first, adding every event object found.
+     *
+     * @param element   The element to search.
+     * @param cards     The list to add events to.
+     * @param permNames The perm_names of the events already added, since the
+     *                  same event can appear in several places in the state.
+     */
+    private static void collectEvents(JsonElement element, List<EventCard> cards, Set<String> permNames) {
+        if (element.isJsonArray()) {
+            for (JsonElement child : element.getAsJsonArray()) {
+                collectEvents(child, cards, permNames);
+            }
+        } else if (element.isJsonObject()) {
+            JsonObject object = element.getAsJsonObject();
+            if (isEvent(object)) {
+                String permName = object.get("perm_name").getAsString();
+                if (permNames.add(permName)) {
+                    EventCard card = toEventCard(object);
+                    if (card != null) {
+                        cards.add(card);
+                    }
+                }
+                return;
+            }
+            for (String key : object.keySet()) {
+                collectEvents(object.get(key), cards, permNames);
+            }
+        }
+    }
+
+    private static boolean isEvent(JsonObject object) {
+        return isString(object, "name") && isString(object, "perm_name") && object.has("dates");
+    }
+
+    /**
+     * Converts an event object from the page state into an EventCard.
+     *
+     * @param event The event object.
+     * @return The EventCard, or null if the event has no usable date.
+     */
+    private static EventCard toEventCard(JsonObject event) {
+        java.sql.Date date = parseDate(event.get("dates"));
+        if (date == null) {
+            return null;
+        }
+
+        String eventName = event.get("name").getAsString();
+        String link = EVENT_URL_PREFIX + event.get("perm_name").getAsString();
+        return new EventCard(eventName, date, parseVenue(event), parsePrice(event.get("price")), link,
+                parseImageUrl(event.get("images")), parseLineup(event.get("summary_lineup")));
+    }
+
+    /**
+     * Reads the event's start date, including its year, in the event's own
+     * time zone.
+     */
+    private static java.sql.Date parseDate(JsonElement dates) {
+        if (dates == null || !dates.isJsonObject() || !isString(dates.getAsJsonObject(), "event_start_date")) {
+            return null;
+        }
+        try {
+            OffsetDateTime start = OffsetDateTime.parse(dates.getAsJsonObject().get("event_start_date").getAsString());
+            return java.sql.Date.valueOf(start.toLocalDate());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String parseVenue(JsonObject event) {
+        JsonElement venues = event.get("venues");
+        if (venues != null && venues.isJsonArray() && venues.getAsJsonArray().size() > 0) {
+            JsonElement venue = venues.getAsJsonArray().get(0);
+            if (venue.isJsonObject() && isString(venue.getAsJsonObject(), "name")) {
+                return venue.getAsJsonObject().get("name").getAsString();
+            }
+        }
+        JsonElement venue = event.get("venue");
+        if (venue != null && venue.isJsonPrimitive()) {
+            return venue.getAsString();
+        }
+        return "";
+    }
+
+    /**
+     * Formats the price, which Dice stores in minor units, the way it is shown
+     * on the event cards (for example "$25.00" or "Free").
+     */
+    private static String parsePrice(JsonElement price) {
+        if (price == null || !price.isJsonObject()) {
+            return "";
+        }
+        JsonObject priceObject = price.getAsJsonObject();
+        JsonElement amount = priceObject.get("amount");
+        if (amount == null || !amount.isJsonPrimitive() || !amount.getAsJsonPrimitive().isNumber()) {
+            return "";
+        }
+        long minorUnits = amount.getAsLong();
+        if (minorUnits == 0) {
+            return "Free";
+        }
+        String currency = isString(priceObject, "currency") ? priceObject.get("currency").getAsString() : "USD";
+        String symbol = "USD".equals(currency) ? "$" : currency + " ";
+        return symbol + BigDecimal.valueOf(minorUnits, 2).toPlainString();
+    }
+
+    private static String parseImageUrl(JsonElement images) {
+        if (images == null || !images.isJsonObject()) {
+            return null;
+        }
+        JsonObject imagesObject = images.getAsJsonObject();
+        for (String key : new String[] { "square", "landscape", "portrait" }) {
+            if (isString(imagesObject, key)) {
+                return imagesObject.get(key).getAsString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Joins the names of the lineup's artists with commas, the same way the
+     * lineup is shown on the event page. The summary only lists the top
+     * artists, so it is used only if its total_artists count shows that it
+     * lists all of them; otherwise the lineup is left to be fetched from the
+     * event page.
+     *
+     * @return The lineup, or null if the event has none or the summary may be
+     *         incomplete.
+     */
+    private static String parseLineup(JsonElement summaryLineup) {
+        if (summaryLineup == null || !summaryLineup.isJsonObject()) {
+            return null;
+        }
+        JsonObject summary = summaryLineup.getAsJsonObject();
+        JsonElement topArtists = summary.get("top_artists");
+        JsonElement totalArtists = summary.get("total_artists");
+        if (topArtists == null || !topArtists.isJsonArray() || totalArtists == null
+                || !totalArtists.isJsonPrimitive() || !totalArtists.getAsJsonPrimitive().isNumber()) {
+            return null;
+        }
+
+        List<String> names = new ArrayList<>();
+        JsonArray artists = topArtists.getAsJsonArray();
+        for (JsonElement artist : artists) {
+            if (artist.isJsonObject() && isString(artist.getAsJsonObject(), "name")) {
+                names.add(artist.getAsJsonObject().get("name").getAsString());
+            }
+        }
+        if (names.isEmpty() || names.size() < totalArtists.getAsInt()) {
+            return null;
+        }
+        return String.join(", ", names);
+    }
+
+    private static boolean isString(JsonObject object, String key) {
+        JsonElement value = object.get(key);
+        return value != null && value.isJsonPrimitive() && value.getAsJsonPrimitive().isString();
+    }
+}
@@ -1,19 +1,29 @@
 package com.caseybrugna.nyc_events;
 
+import io.github.cdimascio.dotenv.Dotenv;
+
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.openqa.selenium.NoSuchElementException;
 
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.time.Duration;
 
 /**
@@ -21,41 +31,269 @@ import java.time.Duration;
  * it in Event objects.
  */
 public class DiceScraper {
+    private static final String BROWSE_URL = "https://dice.fm/browse/";
+    private static final String DEFAULT_TARGETS = "new-york/music/dj";
+    private static final int DEFAULT_TARGET_PARALLELISM = 4;
+    private static final String SCRAPE_MODE;
+    private static final List<String> TARGETS;
+    private static final int TARGET_PARALLELISM;
+
+    static {
+        Dotenv dotenv = Dotenv.configure()
+                .directory("src/main/resources")
+                .load();
+        // Selenium stays the default until the HTTP mode has been run against
+        // the live site; set DICE_SCRAPE_MODE=http to read the page data instead
+        SCRAPE_MODE = dotenv.get("DICE_SCRAPE_MODE", "selenium").trim().toLowerCase();
+
+        List<String> targets = new ArrayList<>();
+        for (String target : dotenv.get("DICE_SCRAPE_TARGETS", DEFAULT_TARGETS).split(",")) {
+            target = target.trim();
+            if (!target.isEmpty()) {
+                targets.add(target.startsWith("http") ? target : BROWSE_URL + target);
+            }
+        }
+        if (targets.isEmpty()) {
+            targets.add(BROWSE_URL + DEFAULT_TARGETS);
+        }
+        TARGETS = Collections.unmodifiableList(targets);
+
+        int parallelism = DEFAULT_TARGET_PARALLELISM;
+        try {
+            parallelism = Math.max(1, Integer.parseInt(
+                    dotenv.get("DICE_SCRAPE_PARALLELISM", String.valueOf(parallelism)).trim()));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid DICE_SCRAPE_PARALLELISM value, using " + DEFAULT_TARGET_PARALLELISM + ": "
+                    + e.getMessage());
+        }
+        TARGET_PARALLELISM = parallelism;
+    }
 
     /**
-     * This method scrapes event data from the
-     * "https://dice.fm/browse/new-york/music/dj" website.
-     * It loads all available events by clicking on the "Load more" button until
-     * it's no longer available.
-     * Then, it extracts the details of each event and creates an Event object for
-     * each one.
-     * All Event objects are then added to a list which is returned by the method.
+     * This method scrapes event data from the Dice browse pages listed in
+     * DICE_SCRAPE_TARGETS, a comma-separated list of URLs or of paths under
+     * https://dice.fm/browse/, such as
+     * "new-york/music/dj,new-york/music/gig,brooklyn/music/party". It defaults
+     * to "new-york/music/dj".
+     * Up to DICE_SCRAPE_PARALLELISM pages are scraped at once, and an event
+     * listed on several pages is returned only once.
+     * By default each page is scraped with a browser, using a session from a
+     * WebDriverPool. If DICE_SCRAPE_MODE is set to http, each page is
+     * downloaded over plain HTTP instead and the events are read from the page
+     * data embedded in it, falling back to the browser if that finds no events.
      *
      * @return A list of Event objects, each representing an event extracted from
      *         the website.
-     * @throws RuntimeException If there's an error during website data retrieval or
-     *                          event detail extraction.
      */
     public static List<Event> scrapeEvents() {
-        String url = "https://dice.fm/browse/new-york/music/dj";
-        WebDriver driver = setupWebDriver();
+        return scrapeEvents(Collections.emptyMap());
+    }
+
+    /**
+     * This method scrapes event data like scrapeEvents(), but only returns the
+     * events that are new or have changed since they were stored.
+     * The pages of known events are requested conditionally using the ETag and
+     * Last-Modified validators stored with them, and an event whose page is
+     * unchanged, or whose price and lineup are the same as stored, is skipped.
+     * The number of added, refreshed and skipped events is printed.
+     *
+     * @param knownEvents The events already stored, keyed by event ID.
+     * @return A list of the Event objects that are new or have changed.
+     */
+    public static List<Event> scrapeEvents(Map<String, KnownEvent> knownEvents) {
+        List<Event> events = Collections.synchronizedList(new ArrayList<>());
+        scrapeEvents(knownEvents, events::add);
+        return new ArrayList<>(events);
+    }
+
+    /**
+     * This method scrapes event data like scrapeEvents(Map), but hands each
+     * event to the sink as soon as it is ready instead of collecting them into
+     * a list, so later stages can start work before the scrape has finished.
+     * The events of a browse page are handed over as soon as that page has
+     * been scraped, without waiting for the other pages. The time each page
+     * takes, from being queued until all of its events have been handed over,
+     * is recorded in the dice.target timer, and the time of the whole scrape
+     * in the dice.scrape timer.
+     *
+     * @param knownEvents The events already stored, keyed by event ID.
+     * @param sink        The consumer that receives each new or changed event.
+     *                    It may be called from several threads at once.
+     */
+    public static void scrapeEvents(Map<String, KnownEvent> knownEvents, Consumer<Event> sink) {
+        long start = System.nanoTime();
+        Set<String> seenEventIDs = ConcurrentHashMap.newKeySet();
+        EmitCounts counts = new EmitCounts();
+        ExecutorService targetPool = Executors.newFixedThreadPool(Math.min(TARGETS.size(), TARGET_PARALLELISM));
+        try (LineupFetcher lineupFetcher = LineupFetcher.fromConfig();
+                WebDriverPool drivers = WebDriverPool.fromConfig()) {
+            List<CompletableFuture<Void>> targetScrapes = new ArrayList<>();
+            for (String url : TARGETS) {
+                long queued = System.nanoTime();
+                targetScrapes.add(CompletableFuture
+                        .supplyAsync(() -> scrapeTarget(url, lineupFetcher, drivers, knownEvents, seenEventIDs),
+                                targetPool)
+                        .thenCompose(pendingEvents -> emitEvents(pendingEvents, knownEvents, sink, counts))
+                        .handle((ignored, e) -> {
+                            RunMetrics.record("dice.target", queued, e == null ? "success" : "failed",
+                                    "target", url);
+                            if (e != null) {
+                                System.err.println("An error occurred while scraping " + url + ": "
+                                        + (e instanceof CompletionException ? e.getCause() : e));
+                            }
+                            return null;
+                        }));
+            }
+            CompletableFuture.allOf(targetScrapes.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            targetPool.shutdown();
+            RunMetrics.record("dice.scrape", start, "finished");
+        }
+
+        if (!knownEvents.isEmpty()) {
+            System.out.println("Incremental scrape: " + counts.added + " added, " + counts.refreshed
+                    + " refreshed, " + counts.skipped + " skipped.");
+        }
+    }
+
+    /**
+     * The number of events handed over or skipped so far, across all browse
+     * pages of a scrape.
+     */
+    private static final class EmitCounts {
+        private final AtomicInteger added = new AtomicInteger();
+        private final AtomicInteger refreshed = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+    }
+
+    /**
+     * This method scrapes one browse page and starts creating an Event object
+     * for each of its cards. The page is downloaded over HTTP if
+     * DICE_SCRAPE_MODE is set to http, and scraped with a browser from the
+     * pool otherwise or if that finds no events.
+     * Events already found on another browse page are left out, so an event
+     * listed in several categories is only fetched and stored once.
+     *
+     * @param url           The URL of the browse page.
+     * @param lineupFetcher The LineupFetcher used to download pages.
+     * @param drivers       The pool of browser sessions.
+     * @param knownEvents   The events already stored, keyed by event ID.
+     * @param seenEventIDs  The IDs of the events found so far in this run.
+     * @return A list of futures, each completing with an Event object or null if
+     *         the event is unchanged.
+     */
+    private static List<CompletableFuture<Event>> scrapeTarget(String url, LineupFetcher lineupFetcher,
+            WebDriverPool drivers, Map<String, KnownEvent> knownEvents, Set<String> seenEventIDs) {
+        List<EventCard> cards = Collections.emptyList();
+        if ("http".equals(SCRAPE_MODE)) {
+            cards = scrapeCardsOverHttp(url, lineupFetcher);
+            if (cards.isEmpty()) {
+                System.err.println("No events found in the page data of " + url + ", falling back to Selenium.");
+            }
+        }
+        if (cards.isEmpty()) {
+            cards = drivers.withDriver(driver -> scrapeCardsWithBrowser(driver, url, drivers.getProfile()));
+        }
+
+        List<CompletableFuture<Event>> pendingEvents = new ArrayList<>();
+        for (EventCard card : cards) {
+            if (seenEventIDs.add(card.getEventID())) {
+                pendingEvents.add(withLineup(card, lineupFetcher, knownEvents));
+            } else {
+                RunMetrics.registry().counter("dice.cards.duplicate").increment();
+            }
+        }
+        return pendingEvents;
+    }
+
+    /**
+     * This method downloads the browse page over HTTP and reads the event
+     * cards from the page data embedded in it.
+     *
+     * @param url           The URL of the browse page.
+     * @param lineupFetcher The LineupFetcher used to download pages.
+     * @return A list of EventCard objects; empty if the page could not be
+     *         downloaded or had no page data.
+     */
+    private static List<EventCard> scrapeCardsOverHttp(String url, LineupFetcher lineupFetcher) {
+        long start = System.nanoTime();
+        String html = lineupFetcher.fetchPage(url);
+        RunMetrics.record("dice.page.load", start, html == null ? "failed" : "success",
+                "mode", "http", "profile", "none");
+        if (html == null) {
+            return Collections.emptyList();
+        }
+        return RunMetrics.time("dice.cards.extract",
+                () -> DicePageDataParser.parseEventCards(html), "mode", "http");
+    }
+
+    /**
+     * This method scrapes the browse page with a browser session.
+     * It loads the page, dismisses the cookie consent popup and extracts the
+     * details of each event card.
+     *
+     * @param driver  The browser session to use.
+     * @param url     The URL of the browse page.
+     * @param profile The browser profile of the session, to tag the page-load
+     *                time with.
+     * @return A list of EventCard objects in the order they appear on the page.
+     */
+    private static List<EventCard> scrapeCardsWithBrowser(WebDriver driver, String url, String profile) {
+        long start = System.nanoTime();
         driver.get(url);
+        RunMetrics.record("dice.page.load", start, "success", "mode", "selenium", "profile", profile);
         dismissCookieConsentPopup(driver);
         // loadAllEvents(driver);
-        List<Event> events = extractEventDetails(driver);
-        driver.quit();
-        return events;
+        return extractEventDetails(driver);
     }
 
     /**
-     * This method sets up the WebDriver needed for web scraping operations.
+     * This method creates the Event object for a card, fetching its lineup from
+     * the event's page first if the card does not already have one.
+     * If the event is already stored, its page is requested conditionally, and
+     * the future completes with null if nothing has changed. If the card has
+     * its own lineup, the page is not fetched and the stored page validators
+     * are kept. If the page of a stored event has not been modified or cannot
+     * be fetched, the stored lineup and validators are kept, but the card's
+     * own details are still compared with the stored ones.
      *
-     * @return An instance of WebDriver.
+     * @param card          The card to create the event for.
+     * @param lineupFetcher The LineupFetcher used to fetch the event page.
+     * @param knownEvents   The events already stored, keyed by event ID.
+     * @return A future that completes with the Event object, or null if the
+     *         event is unchanged.
      */
-    private static WebDriver setupWebDriver() {
-        System.setProperty("webdriver.chrome.driver", "/usr/local/bin/chromedriver");
-        WebDriver driver = new ChromeDriver();
-        return driver;
+    private static CompletableFuture<Event> withLineup(EventCard card, LineupFetcher lineupFetcher,
+            Map<String, KnownEvent> knownEvents) {
+        KnownEvent known = knownEvents.isEmpty() ? null : knownEvents.get(card.getEventID());
+
+        if (card.getArtistsString() != null) {
+            Event event = card.toEvent(card.getArtistsString());
+            if (known != null) {
+                // The page was not fetched, so the validators stored with it
+                // still apply and must not be overwritten with nulls
+                event.setPageValidators(known.getPageETag(), known.getPageLastModified());
+            }
+            return CompletableFuture.completedFuture(known != null && known.isUnchanged(event) ? null : event);
+        }
+
+        String eTag = known != null ? known.getPageETag() : null;
+        String lastModified = known != null ? known.getPageLastModified() : null;
+        return lineupFetcher.fetchLineup(card.getLink(), eTag, lastModified).thenApply(page -> {
+            Event event;
+            if (page == null && known == null) {
+                return card.toEvent(null);
+            } else if (page == null || page.isNotModified()) {
+                // The page is unchanged or unavailable, so the stored lineup
+                // still stands, but the card's price or image may have moved
+                event = card.toEvent(known.getLineup());
+                event.setPageValidators(known.getPageETag(), known.getPageLastModified());
+            } else {
+                event = card.toEvent(page.getLineup());
+                event.setPageValidators(page.getETag(), page.getLastModified());
+            }
+            return known != null && known.isUnchanged(event) ? null : event;
+        });
     }
 
     /**
@@ -103,105 +341,128 @@ public class DiceScraper {
     }
 
     /**
-     * This method extracts the details of each event from the loaded website data
-     * and creates a list of Event objects.
+     * This method extracts the details of each event from the loaded website data.
+     * The rendered page is taken from the browser in a single call and the event
+     * cards are parsed in-process, instead of asking the browser for every
+     * field of every card separately.
      *
      * @param driver The WebDriver instance used for web scraping operations.
-     * @return A list of Event objects, each representing an event extracted from
-     *         the website.
+     * @return A list of EventCard objects in the order they appear on the page.
      */
-    private static List<Event> extractEventDetails(WebDriver driver) {
-        List<Event> events = new ArrayList<>();
-        List<WebElement> eventElements = driver.findElements(By.cssSelector("div.EventCard__Event-sc-95ckmb-1"));
-        for (WebElement eventElement : eventElements) {
+    private static List<EventCard> extractEventDetails(WebDriver driver) {
+        return RunMetrics.time("dice.cards.extract",
+                () -> parseEventCards(Jsoup.parse(driver.getPageSource(), driver.getCurrentUrl())),
+                "mode", "selenium");
+    }
+
+    /**
+     * This method extracts the event cards from a rendered browse page.
+     * A card that cannot be read is logged and skipped.
+     *
+     * @param page The rendered browse page.
+     * @return A list of EventCard objects in the order they appear on the page.
+     */
+    static List<EventCard> parseEventCards(Document page) {
+        List<EventCard> cards = new ArrayList<>();
+        for (Element eventElement : page.select("div.EventCard__Event-sc-95ckmb-1")) {
             try {
-                Event event = extractEvent(eventElement);
-                events.add(event);
+                cards.add(extractEvent(eventElement));
             } catch (Exception e) {
+                RunMetrics.registry().counter("dice.cards.failed").increment();
                 System.err.println("An error occurred while extracting event details: " + e.getMessage());
             }
         }
-        return events;
+        return cards;
     }
 
     /**
-     * This method extracts the details of an event from a given WebElement.
-     * It finds specific details such as event name, date, location, price, link,
-     * image URL, and artists.
-     * Then, it creates and returns an Event object with these details.
+     * This method hands every pending event to the sink as soon as its lineup
+     * has been fetched. Unchanged events are left out, and every event is
+     * counted as added, refreshed or skipped.
+     * The sink may be called from several threads at once; if it blocks, the
+     * fetch and parse threads wait with it.
      *
-     * @param eventElement The WebElement from which to extract event details.
-     * @return An Event object with the details extracted from the provided
-     *         WebElement.
+     * @param pendingEvents The futures returned by scrapeTarget.
+     * @param knownEvents   The events already stored, keyed by event ID.
+     * @param sink          The consumer that receives each new or changed event.
+     * @param counts        The counts to add the events to.
+     * @return A future that completes once every event has been handed over or
+     *         skipped.
      */
-    private static Event extractEvent(WebElement eventElement) {
-        try {
-            String eventName = extractText(eventElement, "div.styles__Title-mwubo3-6");
-            //System.out.println("eventName: " + eventName);
-
-            String date = extractText(eventElement, "div.styles__Date-mwubo3-8");
-            //System.out.println("date: " + date);
+    private static CompletableFuture<Void> emitEvents(List<CompletableFuture<Event>> pendingEvents,
+            Map<String, KnownEvent> knownEvents, Consumer<Event> sink, EmitCounts counts) {
+        List<CompletableFuture<Void>> emitted = new ArrayList<>();
 
-            String location = extractText(eventElement, "div.styles__Venue-mwubo3-7");
-            //System.out.println("location: " + location);
+        for (CompletableFuture<Event> pendingEvent : pendingEvents) {
+            emitted.add(pendingEvent.thenAccept(event -> {
+                if (event == null) {
+                    counts.skipped.incrementAndGet();
+                    countEvent("skipped");
+                    return;
+                }
+                if (knownEvents.containsKey(event.getEventID())) {
+                    counts.refreshed.incrementAndGet();
+                    countEvent("refreshed");
+                } else {
+                    counts.added.incrementAndGet();
+                    countEvent("added");
+                }
+                sink.accept(event);
+            }).exceptionally(e -> {
+                countEvent("failed");
+                System.err.println("An error occurred while extracting event details: " + e.getCause());
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(emitted.toArray(new CompletableFuture<?>[0]));
+    }
 
-            String price = extractText(eventElement, "div.styles__Price-mwubo3-9");
-            //System.out.println("price: " + price);
+    private static void countEvent(String result) {
+        RunMetrics.registry().counter("dice.events", "result", result).increment();
+    }
 
-            String link = eventElement.findElement(By.cssSelector("a.styles__EventCardLink-mwubo3-5")).getAttribute("href");
-            //System.out.println("link: " + link);
+    /**
+     * This method extracts the details of an event from a given card element.
+     * It finds specific details such as event name, date, location, price, link,
+     * and image URL.
+     * Then, it creates and returns an EventCard object with these details; the
+     * lineup is fetched separately from the event's page.
+     *
+     * @param eventElement The card element from which to extract event details.
+     * @return An EventCard object with the details extracted from the provided
+     *         element.
+     * @throws IllegalStateException If the card has no link to the event page.
+     */
+    private static EventCard extractEvent(Element eventElement) {
+        String eventName = extractText(eventElement, "div.styles__Title-mwubo3-6");
+        String date = extractText(eventElement, "div.styles__Date-mwubo3-8");
+        String location = extractText(eventElement, "div.styles__Venue-mwubo3-7");
+        String price = extractText(eventElement, "div.styles__Price-mwubo3-9");
 
-            String imageUrl = eventElement.findElement(By.cssSelector("img.styles__Image-mwubo3-3")).getAttribute("src");
-            //System.out.println("imageUrl: " + imageUrl);
+        Element linkElement = eventElement.selectFirst("a.styles__EventCardLink-mwubo3-5");
+        if (linkElement == null) {
+            throw new IllegalStateException("Event card \"" + eventName + "\" has no link");
+        }
+        String link = linkElement.absUrl("href");
 
-            String artistsString = extractArtistsString(link);
-            //System.out.println("artistsString: " + artistsString);
+        Element imageElement = eventElement.selectFirst("img.styles__Image-mwubo3-3");
+        String imageUrl = imageElement != null ? imageElement.absUrl("src") : null;
 
-            return new Event(eventName, date, location, price, link, imageUrl, artistsString);
-        } catch (Exception e) {
-            System.err.println("An error occurred while extracting event details:");
-            e.printStackTrace();
-            throw e;
-        }
+        return new EventCard(eventName, Event.parseDate(date), location, price, link, imageUrl);
     }
 
     /**
-     * This method extracts text from a WebElement using a given CSS selector.
+     * This method extracts text from an element using a given CSS selector.
      * If the target element doesn't exist, it returns an empty string.
      *
-     * @param element     The WebElement from which to extract text.
+     * @param element     The element from which to extract text.
      * @param cssSelector The CSS selector to locate the target element within the
-     *                    provided WebElement.
+     *                    provided element.
      * @return The extracted text as a String, or an empty string if the target
      *         element is not found.
      */
-    private static String extractText(WebElement element, String cssSelector) {
-        WebElement targetElement = element.findElement(By.cssSelector(cssSelector));
-        return targetElement != null ? targetElement.getText() : "";
-    }
-
-    /**
-     * This method extracts the lineup of artists from an event page by connecting
-     * to the event's URL.
-     * If an artist lineup isn't found or an error occurs during extraction, it
-     * returns null.
-     *
-     * @param eventLink The URL of the event page from which to extract the artist
-     *                  lineup.
-     * @return A String representing the artist lineup, or null if no lineup is
-     *         found or an error occurs during extraction.
-     */
-    private static String extractArtistsString(String eventLink) {
-        try {
-            Document eventDocument = Jsoup.connect(eventLink).get();
-            Element artistElement = eventDocument.selectFirst("div.EventDetailsLineup__ArtistTitle-gmffoe-10");
-            if (artistElement != null) {
-                return artistElement.text();
-            }
-        } catch (IOException e) {
-            System.err.println("An error occurred while extracting the lineup: " + e.getMessage());
-        }
-
-        return null;
+    private static String extractText(Element element, String cssSelector) {
+        Element targetElement = element.selectFirst(cssSelector);
+        return targetElement != null ? targetElement.text() : "";
     }
 }
@@ -5,6 +5,7 @@ import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoField;
 import java.time.temporal.TemporalAccessor;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.sql.Date;
@@ -18,11 +19,15 @@ public class Event {
     private java.sql.Date date;
     private String location;
     private String price;
+    private TicketPrice ticketPrice;
     private String link;
     private String imageUrl;
     private String artistsString;
     private List<String> lineup;
     private List<Artist> artists;
+    private boolean artistLookupFailed;
+    private String pageETag;
+    private String pageLastModified;
 
     /**
      * Constructs an Event object with the specified details.
@@ -40,14 +45,32 @@ public class Event {
      */
     public Event(String eventName, String date, String location, String price, String link, String imageUrl,
             String artistsString) {
+        this(eventName, parseDate(date), location, price, link, imageUrl, artistsString);
+    }
+
+    /**
+     * Constructs an Event object whose date is already known in full, for
+     * example because it was read from the browse page's data.
+     *
+     * @param eventName     the name of the event
+     * @param date          the date of the event, or null if unknown
+     * @param location      the location of the event
+     * @param price         the price of the event
+     * @param link          the link to the event
+     * @param imageUrl      the link to the displayed image
+     * @param artistsString the list of artists (uncleaned)
+     */
+    public Event(String eventName, java.sql.Date date, String location, String price, String link,
+            String imageUrl, String artistsString) {
         this.eventName = eventName;
-        this.date = parseDate(date);
+        this.date = date;
         this.location = location;
         this.price = price;
+        this.ticketPrice = TicketPrice.parse(price);
         this.link = link;
         this.imageUrl = imageUrl;
         this.artistsString = artistsString;
-        parseArtistsString();
+        this.lineup = parseArtistsString(artistsString);
         artists = new ArrayList<>();
 
         this.eventID = generateEventID();
@@ -55,16 +78,20 @@ public class Event {
     }
 
     public String generateEventID() {
-        // Concatenate relevant event details
-        String eventDetails = eventName + date.toString() + location;
-
-        // Generate a unique ID using the hashCode of the event details
-        int hashCode = eventDetails.hashCode();
-        String uniqueID = Integer.toHexString(hashCode);
-
-        uniqueID = uniqueID.replaceAll("[^a-zA-Z0-9]", "");
+        return generateEventID(eventName, date, location);
+    }
 
-        return uniqueID;
+    /**
+     * Generates the ID of an event from its name, date and location, so that
+     * the ID of an event can be worked out before its Event object is created.
+     *
+     * @param eventName the name of the event
+     * @param date      the date of the event
+     * @param location  the location of the event
+     * @return the ID of the event; see EventKey
+     */
+    static String generateEventID(String eventName, java.sql.Date date, String location) {
+        return EventKey.toEventID(EventKey.of(eventName, date, location));
     }
 
     /**
@@ -99,18 +126,24 @@ public class Event {
      * The input date String should be in the format "E, dd MMM",
      * where "E" represents the day of the week, "dd" represents the
      * day of the month, and "MMM" represents the month of the year.
-     * The returned LocalDate object will have the current year.
+     * The card does not show the year, so the date is taken to be in the
+     * current year, or in the next one if it is more than a month in the
+     * past, since Dice only lists upcoming events.
      *
      * @param date the date String to be parsed
      * @return a LocalDate object representing the parsed date
      */
-    private java.sql.Date parseDate(String date) {
+    static java.sql.Date parseDate(String date) {
         try {
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("EEE, MMM d[dd]", Locale.ENGLISH);
             TemporalAccessor temporalAccessor = formatter.parse(date);
-            LocalDate localDate = LocalDate.of(LocalDate.now().getYear(),
+            LocalDate today = LocalDate.now();
+            LocalDate localDate = LocalDate.of(today.getYear(),
                     temporalAccessor.get(ChronoField.MONTH_OF_YEAR),
                     temporalAccessor.get(ChronoField.DAY_OF_MONTH));
+            if (localDate.isBefore(today.minusMonths(1))) {
+                localDate = localDate.plusYears(1);
+            }
             return java.sql.Date.valueOf(localDate);
         } catch (Exception e) {
             return null;
@@ -135,6 +168,15 @@ public class Event {
         return price;
     }
 
+    /**
+     * Returns the price of the event parsed into an amount and currency.
+     *
+     * @return the typed event price
+     */
+    public TicketPrice getTicketPrice() {
+        return ticketPrice;
+    }
+
     /**
      * Returns the link to the event.
      *
@@ -163,14 +205,17 @@ public class Event {
     }
 
     /**
-     * Parses the artistsString and populates the lineup list with the parsed
-     * artists. Removes "and X more" to last artist.
+     * Parses an artistsString into the list of artists in the lineup.
+     * Removes "and X more" from the last artist.
+     *
+     * @param artistsString the lineup as shown on the event listing
+     * @return the names of the artists, in lineup order
      */
-    private void parseArtistsString() {
-        lineup = new ArrayList<>();
+    static List<String> parseArtistsString(String artistsString) {
+        List<String> lineup = new ArrayList<>();
 
-        if (this.artistsString != null && !this.artistsString.isEmpty()) {
-            String[] names = this.artistsString.split(",");
+        if (artistsString != null && !artistsString.isEmpty()) {
+            String[] names = artistsString.split(",");
             for (int i = 0; i < names.length; i++) {
                 String name = names[i].trim();
                 if (i == names.length - 1) {
@@ -180,6 +225,7 @@ public class Event {
                 lineup.add(name);
             }
         }
+        return lineup;
     }
 
     /**
@@ -199,29 +245,76 @@ public class Event {
         artists.add(artist);
     }
 
-    public String getArtistID(int i) {
-        if (artists == null) {
-            return null;
-        } else {
-
-            try {
-                if (i == 1) {
-                    String artistID = artists.get(0).getArtistID();
-                    return artistID;
-                } else if (i == 2) {
-                    String artistID = artists.get(1).getArtistID();
-                    return artistID;
-                } else if (i == 3) {
-                    String artistID = artists.get(2).getArtistID();
-                    return artistID;
-                }
-            } catch (Exception e) {
-                return null;
-            }
+    /**
+     * Returns the artist objects of the lineup, in lineup order.
+     *
+     * @return an unmodifiable list of the event's artists
+     */
+    public List<Artist> getArtists() {
+        return Collections.unmodifiableList(artists);
+    }
 
-        }
-        return null;
+    /**
+     * Records that an artist of the lineup could not be looked up, so the
+     * event's artists are incomplete and must not replace its stored lineup.
+     */
+    public void markArtistLookupFailed() {
+        artistLookupFailed = true;
+    }
+
+    /**
+     * Returns whether every artist of the lineup was looked up.
+     *
+     * @return false if a lookup failed and the artists are incomplete
+     */
+    public boolean hasCompleteArtists() {
+        return !artistLookupFailed;
+    }
+
+    /**
+     * Records the validators the event's page was served with, so the next
+     * scrape can ask for the page only if it has changed.
+     *
+     * @param eTag         the ETag header of the event page, or null
+     * @param lastModified the Last-Modified header of the event page, or null
+     */
+    public void setPageValidators(String eTag, String lastModified) {
+        this.pageETag = eTag;
+        this.pageLastModified = lastModified;
+    }
+
+    /**
+     * Returns the ETag the event's page was served with.
+     *
+     * @return the ETag, or null if the page did not send one
+     */
+    public String getPageETag() {
+        return pageETag;
+    }
 
+    /**
+     * Returns the Last-Modified date the event's page was served with.
+     *
+     * @return the Last-Modified header, or null if the page did not send one
+     */
+    public String getPageLastModified() {
+        return pageLastModified;
+    }
+
+    /**
+     * Returns a fingerprint of everything stored in the event's database row
+     * and of the artist IDs its lineup resolved to, so the row and its
+     * EventArtist rows are only rewritten when one of them has changed.
+     *
+     * @return the 64-bit content fingerprint of the event
+     */
+    public long getFingerprint() {
+        StringBuilder artistIDs = new StringBuilder();
+        for (Artist artist : artists) {
+            artistIDs.append(artist.getArtistID()).append(',');
+        }
+        return Fingerprint.of(eventName, date, location, price, link, imageUrl, getLineupAsString(), pageETag,
+                pageLastModified, artistIDs);
     }
 
     /**
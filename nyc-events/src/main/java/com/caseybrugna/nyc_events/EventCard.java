@@ -0,0 +1,125 @@
+package com.caseybrugna.nyc_events;
+
+/**
+ * The details of an event as shown on its card on the Dice browse page, before
+ * the lineup has been fetched from the event's own page.
+ */
+class EventCard {
+    private final String eventName;
+    private final java.sql.Date date;
+    private final String location;
+    private final String price;
+    private final String link;
+    private final String imageUrl;
+    private final String artistsString;
+
+    /**
+     * Constructs an EventCard object with the specified details.
+     *
+     * @param eventName the name of the event
+     * @param date      the date of the event, or null if unknown
+     * @param location  the location of the event
+     * @param price     the price of the event
+     * @param link      the link to the event's page
+     * @param imageUrl  the link to the displayed image
+     */
+    EventCard(String eventName, java.sql.Date date, String location, String price, String link, String imageUrl) {
+        this(eventName, date, location, price, link, imageUrl, null);
+    }
+
+    /**
+     * Constructs an EventCard object whose lineup is already known, for example
+     * because it was embedded in the browse page's data.
+     *
+     * @param eventName     the name of the event
+     * @param date          the date of the event, or null if unknown
+     * @param location      the location of the event
+     * @param price         the price of the event
+     * @param link          the link to the event's page
+     * @param imageUrl      the link to the displayed image
+     * @param artistsString the lineup of the event, or null if unknown
+     */
+    EventCard(String eventName, java.sql.Date date, String location, String price, String link, String imageUrl,
+            String artistsString) {
+        this.eventName = eventName;
+        this.date = date;
+        this.location = location;
+        this.price = price;
+        this.link = link;
+        this.imageUrl = imageUrl;
+        this.artistsString = artistsString;
+    }
+
+    /**
+     * Returns the name of the event.
+     *
+     * @return the event name
+     */
+    String getEventName() {
+        return eventName;
+    }
+
+    /**
+     * Returns the date of the event.
+     *
+     * @return the event date, or null if unknown
+     */
+    java.sql.Date getDate() {
+        return date;
+    }
+
+    /**
+     * Returns the location of the event.
+     *
+     * @return the event location
+     */
+    String getLocation() {
+        return location;
+    }
+
+    /**
+     * Returns the link to the event's page.
+     *
+     * @return the event link
+     */
+    String getLink() {
+        return link;
+    }
+
+    /**
+     * Returns the ID the event will have once its Event object is created.
+     *
+     * @return the event ID
+     */
+    String getEventID() {
+        return Event.generateEventID(eventName, date, location);
+    }
+
+    /**
+     * Returns the price of the event.
+     *
+     * @return the event price
+     */
+    String getPrice() {
+        return price;
+    }
+
+    /**
+     * Returns the lineup of the event if it was known when the card was read.
+     *
+     * @return the lineup, or null if it still has to be fetched
+     */
+    String getArtistsString() {
+        return artistsString;
+    }
+
+    /**
+     * Creates the Event object for this card with the given lineup.
+     *
+     * @param artistsString the lineup scraped from the event's page, or null
+     * @return the Event object
+     */
+    Event toEvent(String artistsString) {
+        return new Event(eventName, date, location, price, link, imageUrl, artistsString);
+    }
+}
@@ -0,0 +1,145 @@
+package com.caseybrugna.nyc_events;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * The read API for upcoming events and artists. Paged and single lookups are
+ * served from the ResponseCache, so the database is only read once per
+ * response per scrape run; filter queries and searches are answered by the
+ * in-memory EventStore and SearchIndex.
+ */
+@RestController
+@RequestMapping("/api")
+public class EventController {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int DEFAULT_SEARCH_RESULTS = 10;
+    private static final int MAX_SEARCH_RESULTS = 50;
+
+    private final DatabaseDAO databaseDAO;
+    private final ResponseCache responseCache;
+    private final EventStore eventStore;
+    private final SearchIndex searchIndex;
+
+    /**
+     * Constructor for the EventController class.
+     *
+     * @param databaseDAO   The connected DatabaseDAO to read from.
+     * @param responseCache The cache responses are served from.
+     * @param eventStore    The in-memory store filter queries are answered
+     *                      from.
+     * @param searchIndex   The index searches are answered from.
+     */
+    public EventController(DatabaseDAO databaseDAO, ResponseCache responseCache, EventStore eventStore,
+            SearchIndex searchIndex) {
+        this.databaseDAO = databaseDAO;
+        this.responseCache = responseCache;
+        this.eventStore = eventStore;
+        this.searchIndex = searchIndex;
+    }
+
+    /**
+     * Returns a page of upcoming events, soonest first.
+     *
+     * @param cursor The cursor returned with the previous page, or none for the
+     *               first page.
+     * @param limit  The number of events per page, at most 200.
+     * @return The page, or 400 Bad Request if the cursor is not valid.
+     */
+    @GetMapping("/events")
+    public ResponseEntity<EventPage> getUpcomingEvents(@RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        int pageSize = Math.max(1, Math.min(MAX_PAGE_SIZE, limit));
+        LocalDate afterDate;
+        String afterEventID;
+        try {
+            afterDate = cursor == null ? null : EventPage.cursorDate(cursor);
+            afterEventID = cursor == null ? null : EventPage.cursorEventID(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Pages only hold events from today on, so they are cached per day
+        EventPage page = responseCache.get("events:" + LocalDate.now() + ":" + cursor + ":" + pageSize,
+                () -> new EventPage(databaseDAO.findUpcomingEvents(afterDate, afterEventID, pageSize), pageSize));
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Returns the upcoming events matching every given filter, soonest first.
+     *
+     * @param from   The earliest date (for example 2023-07-14), inclusive;
+     *               today if not given.
+     * @param to     The latest date, inclusive.
+     * @param venue  The venue.
+     * @param genre  A genre of one of the lineup's artists.
+     * @param artist The Spotify ID of one of the lineup's artists.
+     * @param limit  The maximum number of events, at most 200.
+     * @return The matching events, or 400 Bad Request if a date is not valid.
+     */
+    @GetMapping("/events/filter")
+    public ResponseEntity<List<EventRecord>> filterEvents(@RequestParam(required = false) String from,
+            @RequestParam(required = false) String to, @RequestParam(required = false) String venue,
+            @RequestParam(required = false) String genre, @RequestParam(required = false) String artist,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        LocalDate fromDate;
+        LocalDate toDate;
+        try {
+            fromDate = from == null ? LocalDate.now() : LocalDate.parse(from);
+            toDate = to == null ? null : LocalDate.parse(to);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = Math.max(1, Math.min(MAX_PAGE_SIZE, limit));
+        return ResponseEntity.ok(eventStore.query(fromDate, toDate, venue, genre, artist, pageSize));
+    }
+
+    /**
+     * Returns the events best matching a typeahead query across event names,
+     * venues and lineup artists.
+     *
+     * @param q     The text typed so far.
+     * @param limit The maximum number of events, at most 50.
+     * @return The matching events, best match first.
+     */
+    @GetMapping("/search")
+    public List<EventRecord> search(@RequestParam String q,
+            @RequestParam(defaultValue = "" + DEFAULT_SEARCH_RESULTS) int limit) {
+        return searchIndex.search(q, Math.max(1, Math.min(MAX_SEARCH_RESULTS, limit)));
+    }
+
+    /**
+     * Returns a single event.
+     *
+     * @param eventID The ID of the event.
+     * @return The event, or 404 Not Found if there is none with that ID.
+     */
+    @GetMapping("/events/{eventID}")
+    public ResponseEntity<EventRecord> getEvent(@PathVariable String eventID) {
+        EventRecord event = responseCache.get("event:" + eventID, () -> databaseDAO.findEvent(eventID));
+        return event == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(event);
+    }
+
+    /**
+     * Returns a single artist with the IDs of their upcoming events.
+     *
+     * @param artistID The Spotify ID of the artist.
+     * @return The artist, or 404 Not Found if there is none with that ID.
+     */
+    @GetMapping("/artists/{artistID}")
+    public ResponseEntity<ArtistRecord> getArtist(@PathVariable String artistID) {
+        // The artist's upcoming events change with the day, so they are cached per day
+        ArtistRecord artist = responseCache.get("artist:" + LocalDate.now() + ":" + artistID,
+                () -> databaseDAO.findArtist(artistID));
+        return artist == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(artist);
+    }
+}
@@ -0,0 +1,66 @@
+package com.caseybrugna.nyc_events;
+
+/**
+ * Derives the 64-bit key of an event from its name, date and location.
+ * The key is stored as BINARY(8), big-endian, in the EventKey columns; the
+ * event ID used everywhere else is its 16-character lowercase hex form, which
+ * sorts in the same order as the stored bytes. The database converts between
+ * the two with HEX and UNHEX.
+ * <p>
+ * With 64 bits, the chance of two of 100,000 events sharing a key is about
+ * 1 in 3.7 billion; the 32-bit hashes the IDs used to be made from were
+ * more likely than not to collide by 77,000 events.
+ */
+public final class EventKey {
+    private static final int HEX_LENGTH = 16;
+
+    private EventKey() {
+    }
+
+    /**
+     * Computes the key of an event.
+     *
+     * @param eventName the name of the event
+     * @param date      the date of the event
+     * @param location  the location of the event
+     * @return the 64-bit key
+     */
+    public static long of(String eventName, java.sql.Date date, String location) {
+        return Fingerprint.of(eventName, date, location);
+    }
+
+    /**
+     * Formats a key as an event ID.
+     *
+     * @param key the 64-bit key
+     * @return the 16-character lowercase hex event ID
+     */
+    public static String toEventID(long key) {
+        String hex = Long.toHexString(key);
+        StringBuilder eventID = new StringBuilder(HEX_LENGTH);
+        for (int i = hex.length(); i < HEX_LENGTH; i++) {
+            eventID.append('0');
+        }
+        return eventID.append(hex).toString();
+    }
+
+    /**
+     * Checks whether a string is an event ID in the current format, so that
+     * malformed IDs can be rejected before they reach the database.
+     *
+     * @param eventID the string to check
+     * @return true if it is 16 lowercase hex digits
+     */
+    public static boolean isEventID(String eventID) {
+        if (eventID == null || eventID.length() != HEX_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < HEX_LENGTH; i++) {
+            char c = eventID.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,95 @@
+package com.caseybrugna.nyc_events;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of upcoming events returned by the read API, with the cursor to pass
+ * back to get the next page.
+ * The cursor is the (Date, EventID) key of the page's last event, encoded as
+ * an opaque URL-safe string.
+ */
+public final class EventPage {
+    private static final String SEPARATOR = "|";
+
+    private final List<EventRecord> events;
+    private final String nextCursor;
+
+    /**
+     * Constructs an EventPage object.
+     *
+     * @param events the events of the page
+     * @param limit  the page size that was asked for; if the page is full
+     *               there may be more events after it
+     */
+    public EventPage(List<EventRecord> events, int limit) {
+        this.events = Collections.unmodifiableList(events);
+        this.nextCursor = events.size() < limit ? null : encodeCursor(events.get(events.size() - 1));
+    }
+
+    /**
+     * Returns the events of the page.
+     *
+     * @return an unmodifiable list of events
+     */
+    public List<EventRecord> getEvents() {
+        return events;
+    }
+
+    /**
+     * Returns the cursor of the next page.
+     *
+     * @return the cursor, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    private static String encodeCursor(EventRecord last) {
+        String key = last.getDate() + SEPARATOR + last.getEventID();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes the date of the last event of the previous page from a cursor.
+     *
+     * @param cursor the cursor returned with the previous page
+     * @return the date
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    static LocalDate cursorDate(String cursor) {
+        try {
+            return LocalDate.parse(decodeCursor(cursor)[0]);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    /**
+     * Decodes the ID of the last event of the previous page from a cursor.
+     *
+     * @param cursor the cursor returned with the previous page
+     * @return the event ID
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    static String cursorEventID(String cursor) {
+        String eventID = decodeCursor(cursor)[1];
+        if (!EventKey.isEventID(eventID)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return eventID;
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int separator = key.indexOf(SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return new String[] { key.substring(0, separator), key.substring(separator + 1) };
+    }
+}
@@ -0,0 +1,302 @@
+package com.caseybrugna.nyc_events;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a scrape as three connected stages instead of three strict phases.
+ * Events flow from DiceScraper into a bounded queue, are enriched by a pool of
+ * worker threads, and flow through a second bounded queue into micro-batched
+ * database writes. When a queue is full the stage feeding it waits, so memory
+ * use is bounded by the queue sizes rather than by the number of events, and
+ * each batch is stored as soon as it is ready instead of at the end of the run.
+ */
+public class EventPipeline {
+    private static final int DEFAULT_QUEUE_SIZE = 64;
+    private static final int DEFAULT_BATCH_SIZE = 25;
+    private static final long FLUSH_INTERVAL_MILLIS = 2000;
+    private static final long STOP_CHECK_MILLIS = 100;
+    private static final long STOP_TIMEOUT_MILLIS = 30_000;
+
+    // Marks the end of a queue; compared by identity only
+    private static final Event END_OF_EVENTS = new Event("", (java.sql.Date) null, "", "", "", "", null);
+
+    private final ArtistEnricher enricher;
+    private final DatabaseDAO databaseDAO;
+    private final int enrichThreads;
+    private final int batchSize;
+    private final BlockingQueue<Event> scrapedEvents;
+    private final BlockingQueue<Event> enrichedEvents;
+
+    private final Set<Artist> storedArtists = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final AtomicInteger storedEvents = new AtomicInteger();
+    private volatile boolean stopped;
+
+    /**
+     * Constructor for the EventPipeline class.
+     *
+     * @param enricher      The ArtistEnricher used to enrich event lineups.
+     * @param databaseDAO   The DatabaseDAO the events are written to. It must
+     *                      already be connected.
+     * @param enrichThreads The number of events enriched at once.
+     * @param queueSize     The capacity of each queue between stages.
+     * @param batchSize     The number of events written per batch.
+     */
+    public EventPipeline(ArtistEnricher enricher, DatabaseDAO databaseDAO, int enrichThreads, int queueSize,
+            int batchSize) {
+        this.enricher = enricher;
+        this.databaseDAO = databaseDAO;
+        this.enrichThreads = Math.max(1, enrichThreads);
+        this.batchSize = Math.max(1, batchSize);
+        this.scrapedEvents = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.enrichedEvents = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+    }
+
+    /**
+     * Creates an EventPipeline configured from the .env file.
+     * ENRICH_THREADS, PIPELINE_QUEUE_SIZE and PIPELINE_BATCH_SIZE override the
+     * defaults.
+     *
+     * @param enricher    The ArtistEnricher used to enrich event lineups.
+     * @param databaseDAO The connected DatabaseDAO the events are written to.
+     * @return The configured EventPipeline.
+     */
+    public static EventPipeline fromConfig(ArtistEnricher enricher, DatabaseDAO databaseDAO) {
+        Dotenv dotenv = Dotenv.configure()
+                .directory("src/main/resources")
+                .load();
+        int queueSize = DEFAULT_QUEUE_SIZE;
+        int batchSize = DEFAULT_BATCH_SIZE;
+        try {
+            queueSize = Integer.parseInt(dotenv.get("PIPELINE_QUEUE_SIZE", String.valueOf(queueSize)).trim());
+            batchSize = Integer.parseInt(dotenv.get("PIPELINE_BATCH_SIZE", String.valueOf(batchSize)).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid pipeline setting, using defaults: " + e.getMessage());
+        }
+        return new EventPipeline(enricher, databaseDAO, ArtistEnricher.configuredThreads(), queueSize, batchSize);
+    }
+
+    /**
+     * Scrapes, enriches and stores events until the scrape is finished and
+     * every event has been written. The calling thread does the writing. If
+     * writing fails or the calling thread is interrupted, the scraper and
+     * enrichment threads are stopped before this method returns or rethrows
+     * the failure, so none of them is left waiting on a full queue.
+     *
+     * @param knownEvents The events already stored, keyed by event ID, for an
+     *                    incremental scrape; empty for a full scrape.
+     */
+    public void run(Map<String, KnownEvent> knownEvents) {
+        Thread scraper = new Thread(() -> scrape(knownEvents), "pipeline-scraper");
+        scraper.start();
+
+        List<Thread> workers = new ArrayList<>();
+        AtomicInteger runningWorkers = new AtomicInteger(enrichThreads);
+        for (int i = 0; i < enrichThreads; i++) {
+            Thread worker = new Thread(() -> enrich(runningWorkers), "pipeline-enricher-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+
+        boolean finished = false;
+        try {
+            write();
+            scraper.join();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            finished = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("The pipeline was interrupted: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("An error occurred while writing the events, stopping the pipeline: "
+                    + e.getMessage());
+            throw e;
+        } finally {
+            if (!finished) {
+                stop(scraper, workers);
+            }
+        }
+
+        System.out.println("Pipeline stored " + storedEvents.get() + " events and " + storedArtists.size()
+                + " artists.");
+    }
+
+    /**
+     * Stops the scraper and enrichment threads and waits for them to finish.
+     * The scrape's threads are told through the stopped flag, since they are
+     * not the scraper thread and are not interrupted with it, and the queues
+     * are emptied so that nothing stays blocked on a full one.
+     */
+    private void stop(Thread scraper, List<Thread> workers) {
+        stopped = true;
+        List<Thread> threads = new ArrayList<>(workers);
+        threads.add(scraper);
+        threads.forEach(Thread::interrupt);
+
+        boolean interrupted = Thread.interrupted();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STOP_TIMEOUT_MILLIS);
+        for (Thread thread : threads) {
+            while (thread.isAlive() && System.nanoTime() < deadline) {
+                scrapedEvents.clear();
+                enrichedEvents.clear();
+                try {
+                    thread.join(STOP_CHECK_MILLIS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (thread.isAlive()) {
+                System.err.println("The pipeline thread " + thread.getName() + " did not stop in time.");
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of events written so far.
+     *
+     * @return the number of stored events
+     */
+    public int getStoredEvents() {
+        return storedEvents.get();
+    }
+
+    /**
+     * The first stage: scrapes events into the scraped queue, then tells every
+     * enrichment worker that there are no more events.
+     */
+    private void scrape(Map<String, KnownEvent> knownEvents) {
+        try {
+            DiceScraper.scrapeEvents(knownEvents, this::putScraped);
+        } catch (RuntimeException e) {
+            System.err.println("An error occurred while scraping the events: " + e.getMessage());
+        } finally {
+            try {
+                for (int i = 0; i < enrichThreads; i++) {
+                    putScraped(END_OF_EVENTS);
+                }
+            } catch (IllegalStateException e) {
+                // The pipeline is being stopped and the workers no longer
+                // wait for the end markers
+            }
+        }
+    }
+
+    /**
+     * Queues a scraped event, waiting while the queue is full. It is called
+     * from the scrape's own threads, so it gives up once the pipeline is
+     * stopped instead of relying on being interrupted.
+     */
+    private void putScraped(Event event) {
+        try {
+            while (!stopped) {
+                if (scrapedEvents.offer(event, STOP_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing a scraped event", e);
+        }
+        throw new IllegalStateException("The pipeline was stopped");
+    }
+
+    /**
+     * The second stage: enriches events from the scraped queue and passes them
+     * on. The last worker to finish tells the writer there are no more events.
+     */
+    private void enrich(AtomicInteger runningWorkers) {
+        try {
+            while (!stopped) {
+                Event event = scrapedEvents.take();
+                if (event == END_OF_EVENTS) {
+                    break;
+                }
+                try {
+                    enricher.enrichEvent(event);
+                } catch (RuntimeException e) {
+                    System.err.println("An error occurred while enriching " + event.getEventName() + ": "
+                            + e.getMessage());
+                }
+                enrichedEvents.put(event);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (runningWorkers.decrementAndGet() == 0) {
+                try {
+                    enrichedEvents.put(END_OF_EVENTS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * The last stage: collects enriched events into batches and writes a batch
+     * when it is full, or when no new event has arrived for a while so that a
+     * slow scrape still gets its events stored promptly.
+     */
+    private void write() throws InterruptedException {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (true) {
+            Event event = enrichedEvents.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            if (event == END_OF_EVENTS) {
+                break;
+            }
+            if (event != null) {
+                batch.add(event);
+            }
+            if (batch.size() >= batchSize || (event == null && !batch.isEmpty())) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+
+    /**
+     * Writes a batch of events along with any of their artists that have not
+     * been written yet in this run. An artist only counts as written once its
+     * chunk has been committed, so one in a rolled back chunk is tried again
+     * with the next batch that has it.
+     *
+     * @param batch The events to write.
+     */
+    private void writeBatch(List<Event> batch) {
+        Set<Artist> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Artist> newArtists = new ArrayList<>();
+        for (Event event : batch) {
+            for (Artist artist : event.getArtists()) {
+                if (!storedArtists.contains(artist) && pending.add(artist)) {
+                    newArtists.add(artist);
+                }
+            }
+        }
+
+        List<Artist> writtenArtists = databaseDAO.insertArtists(newArtists);
+        storedArtists.addAll(writtenArtists);
+        List<Event> writtenEvents = databaseDAO.insertEvents(batch);
+        databaseDAO.insertTracks(writtenArtists);
+        // Only events that were new or changed can have a different lineup
+        databaseDAO.insertEventArtists(writtenEvents);
+        storedEvents.addAndGet(batch.size());
+    }
+}
@@ -0,0 +1,265 @@
+package com.caseybrugna.nyc_events;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable event as read back from the database, served by the read API.
+ * Every upcoming event is held in memory as an EventRecord, so records are
+ * kept compact: the date is stored as a day number, and values that repeat
+ * across events (venue, price, artist names and IDs, genres) are stored as
+ * codes into a StringDictionary, with lineups as arrays of codes. Each record
+ * keeps the dictionary it was encoded with, which it shares with the other
+ * records loaded for the same EventStore snapshot.
+ */
+public final class EventRecord {
+    private final StringDictionary dictionary;
+    private final String eventID;
+    private final String eventName;
+    private final int epochDay;
+    private final int location;
+    private final int price;
+    private final String link;
+    private final String imageUrl;
+    private final int[] lineup;
+    private final int[] artistIDs;
+    private final int[] genres;
+    private final int popularityScore;
+
+    /**
+     * Constructs an EventRecord object with the specified details.
+     *
+     * @param eventID   the ID of the event
+     * @param eventName the name of the event
+     * @param date      the date of the event
+     * @param location  the location of the event
+     * @param price     the price of the event
+     * @param link      the link to the event
+     * @param imageUrl  the link to the displayed image
+     * @param lineup    the names of the artists in the lineup, in order
+     */
+    public EventRecord(String eventID, String eventName, LocalDate date, String location, String price, String link,
+            String imageUrl, List<String> lineup) {
+        this(eventID, eventName, date, location, price, link, imageUrl, lineup, Collections.emptyList(),
+                Collections.emptyList(), 0);
+    }
+
+    /**
+     * Constructs an EventRecord object whose lineup has been matched to
+     * Spotify artists.
+     *
+     * @param eventID         the ID of the event
+     * @param eventName       the name of the event
+     * @param date            the date of the event
+     * @param location        the location of the event
+     * @param price           the price of the event
+     * @param link            the link to the event
+     * @param imageUrl        the link to the displayed image
+     * @param lineup          the names of the artists in the lineup, in order
+     * @param artistIDs       the Spotify IDs of the lineup's artists, in order
+     * @param genres          the genres of the lineup's artists, without
+     *                        duplicates
+     * @param popularityScore the highest Spotify popularity score in the
+     *                        lineup
+     */
+    public EventRecord(String eventID, String eventName, LocalDate date, String location, String price, String link,
+            String imageUrl, List<String> lineup, List<String> artistIDs, List<String> genres, int popularityScore) {
+        this(StringDictionary.current(), eventID, eventName, (int) date.toEpochDay(), location, price, link, imageUrl,
+                lineup, artistIDs, genres, popularityScore);
+    }
+
+    private EventRecord(StringDictionary dictionary, String eventID, String eventName, int epochDay,
+            String location, String price, String link, String imageUrl, List<String> lineup,
+            List<String> artistIDs, List<String> genres, int popularityScore) {
+        this(dictionary, eventID, eventName, epochDay, dictionary.encode(location), dictionary.encode(price), link,
+                imageUrl, dictionary.encode(lineup), dictionary.encode(artistIDs), dictionary.encode(genres),
+                popularityScore);
+    }
+
+    private EventRecord(StringDictionary dictionary, String eventID, String eventName, int epochDay, int location,
+            int price, String link, String imageUrl, int[] lineup, int[] artistIDs, int[] genres,
+            int popularityScore) {
+        this.dictionary = dictionary;
+        this.eventID = eventID;
+        this.eventName = eventName;
+        this.epochDay = epochDay;
+        this.location = location;
+        this.price = price;
+        this.link = link;
+        this.imageUrl = imageUrl;
+        this.lineup = lineup;
+        this.artistIDs = artistIDs;
+        this.genres = genres;
+        this.popularityScore = popularityScore;
+    }
+
+    /**
+     * Creates an EventRecord from a scraped event and the artists it was
+     * enriched with.
+     *
+     * @param event the scraped and enriched event
+     * @return the EventRecord, or null if the event has no date
+     */
+    public static EventRecord from(Event event) {
+        if (event.getDate() == null) {
+            return null;
+        }
+        List<String> artistIDs = new ArrayList<>();
+        Set<String> genres = new LinkedHashSet<>();
+        int popularityScore = 0;
+        for (Artist artist : event.getArtists()) {
+            popularityScore = Math.max(popularityScore, artist.getPopularityScore());
+            if (artist.getArtistID() != null) {
+                artistIDs.add(artist.getArtistID());
+            }
+            if (artist.getArtistGenres() != null) {
+                Collections.addAll(genres, artist.getArtistGenres());
+            }
+        }
+        List<String> lineup = event.getLineup() == null ? Collections.emptyList() : event.getLineup();
+        return new EventRecord(event.getEventID(), event.getEventName(), event.getDate().toLocalDate(),
+                event.getLocation(), event.getPrice(), event.getLink(), event.getImageUrl(), lineup, artistIDs,
+                new ArrayList<>(genres), popularityScore);
+    }
+
+    /**
+     * Returns a copy of this record with the given lineup artists.
+     *
+     * @param artistIDs       the Spotify IDs of the lineup's artists, in order
+     * @param genres          the genres of the lineup's artists, without
+     *                        duplicates
+     * @param popularityScore the highest Spotify popularity score in the
+     *                        lineup
+     * @return the new EventRecord
+     */
+    public EventRecord withArtists(List<String> artistIDs, List<String> genres, int popularityScore) {
+        return new EventRecord(dictionary, eventID, eventName, epochDay, location, price, link, imageUrl, lineup,
+                dictionary.encode(artistIDs), dictionary.encode(genres), popularityScore);
+    }
+
+    /**
+     * Returns the ID of the event.
+     *
+     * @return the event ID
+     */
+    public String getEventID() {
+        return eventID;
+    }
+
+    /**
+     * Returns the name of the event.
+     *
+     * @return the event name
+     */
+    public String getEventName() {
+        return eventName;
+    }
+
+    /**
+     * Returns the date of the event in ISO format (for example 2023-07-14).
+     *
+     * @return the event date
+     */
+    public String getDate() {
+        return getLocalDate().toString();
+    }
+
+    /**
+     * Returns the date of the event.
+     *
+     * @return the event date
+     */
+    @JsonIgnore
+    public LocalDate getLocalDate() {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Returns the date of the event as a day number, for comparing dates
+     * without creating LocalDate objects.
+     *
+     * @return the number of days since 1970-01-01
+     */
+    int getEpochDay() {
+        return epochDay;
+    }
+
+    /**
+     * Returns the location of the event.
+     *
+     * @return the event location
+     */
+    public String getLocation() {
+        return dictionary.decode(location);
+    }
+
+    /**
+     * Returns the price of the event.
+     *
+     * @return the event price
+     */
+    public String getPrice() {
+        return dictionary.decode(price);
+    }
+
+    /**
+     * Returns the link to the event.
+     *
+     * @return the event link
+     */
+    public String getLink() {
+        return link;
+    }
+
+    /**
+     * Returns the link to the displayed image.
+     *
+     * @return the image URL
+     */
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    /**
+     * Returns the names of the artists in the lineup, in order.
+     *
+     * @return an unmodifiable list of artist names
+     */
+    public List<String> getLineup() {
+        return dictionary.decode(lineup);
+    }
+
+    /**
+     * Returns the Spotify IDs of the lineup's artists, in order. Artists
+     * without a Spotify profile are left out.
+     *
+     * @return an unmodifiable list of artist IDs
+     */
+    public List<String> getArtistIDs() {
+        return dictionary.decode(artistIDs);
+    }
+
+    /**
+     * Returns the genres of the lineup's artists, without duplicates.
+     *
+     * @return an unmodifiable list of genres
+     */
+    public List<String> getGenres() {
+        return dictionary.decode(genres);
+    }
+
+    /**
+     * Returns the highest Spotify popularity score of the lineup's artists.
+     *
+     * @return the popularity score, or 0 if no artist has a Spotify profile
+     */
+    public int getPopularityScore() {
+        return popularityScore;
+    }
+}
@@ -0,0 +1,264 @@
+package com.caseybrugna.nyc_events;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An in-memory store of upcoming events with indexes by date, venue, genre
+ * and artist, so filter queries are answered without touching the database.
+ * The events and indexes form an immutable snapshot that is rebuilt after each
+ * scrape and swapped in atomically, so readers never take a lock and always see
+ * one consistent scrape.
+ */
+public class EventStore {
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.build(Collections.emptyList()));
+
+    /**
+     * Replaces the stored events. Readers keep using the previous events until
+     * the new snapshot is complete. Records created after this are encoded
+     * with a new StringDictionary, so the values of earlier snapshots are
+     * released with them instead of accumulating.
+     *
+     * @param events The upcoming events.
+     */
+    public void replace(Collection<EventRecord> events) {
+        snapshot.set(Snapshot.build(events));
+        StringDictionary.startNew();
+    }
+
+    /**
+     * Replaces the stored events with freshly scraped and enriched ones.
+     *
+     * @param events The scraped events.
+     */
+    public void replaceFromEvents(Collection<Event> events) {
+        List<EventRecord> records = new ArrayList<>(events.size());
+        for (Event event : events) {
+            EventRecord record = EventRecord.from(event);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        replace(records);
+    }
+
+    /**
+     * Returns the number of stored events.
+     *
+     * @return the number of events
+     */
+    public int size() {
+        return snapshot.get().events.length;
+    }
+
+    /**
+     * Returns a single event.
+     *
+     * @param eventID The ID of the event.
+     * @return The event, or null if there is none with that ID.
+     */
+    public EventRecord get(String eventID) {
+        return snapshot.get().byID.get(eventID);
+    }
+
+    /**
+     * Returns every stored event in (Date, EventID) order.
+     *
+     * @return an unmodifiable list of events
+     */
+    public List<EventRecord> getAll() {
+        return Collections.unmodifiableList(Arrays.asList(snapshot.get().events));
+    }
+
+    /**
+     * Finds the events matching every given filter, soonest first.
+     *
+     * @param from     The earliest date, inclusive, or null for no limit.
+     * @param to       The latest date, inclusive, or null for no limit.
+     * @param venue    The venue, ignoring case and extra whitespace, or null.
+     * @param genre    A genre of one of the lineup's artists, ignoring case and
+     *                 extra whitespace, or null.
+     * @param artistID The Spotify ID of one of the lineup's artists, or null.
+     * @param limit    The maximum number of events to return.
+     * @return The matching events.
+     */
+    public List<EventRecord> query(LocalDate from, LocalDate to, String venue, String genre, String artistID,
+            int limit) {
+        Snapshot current = snapshot.get();
+
+        // Intersect the posting lists of the filters that were given; without
+        // any, every event in the date range matches
+        int[] postings = null;
+        if (venue != null) {
+            postings = intersect(postings, current.byVenue.get(ArtistCache.normalize(venue)));
+        }
+        if (genre != null) {
+            postings = intersect(postings, current.byGenre.get(ArtistCache.normalize(genre)));
+        }
+        if (artistID != null) {
+            postings = intersect(postings, current.byArtistID.get(artistID));
+        }
+
+        List<EventRecord> results = new ArrayList<>(Math.min(limit, 64));
+        if (postings == null) {
+            int start = from == null ? 0 : current.firstOnOrAfter(from);
+            for (int i = start; i < current.events.length && results.size() < limit; i++) {
+                if (to != null && current.dates[i] > to.toEpochDay()) {
+                    break;
+                }
+                results.add(current.events[i]);
+            }
+        } else {
+            // Postings are positions in date order, so the range is contiguous
+            int start = from == null ? 0 : current.firstPostingOnOrAfter(postings, from);
+            for (int i = start; i < postings.length && results.size() < limit; i++) {
+                int position = postings[i];
+                if (to != null && current.dates[position] > to.toEpochDay()) {
+                    break;
+                }
+                results.add(current.events[position]);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Intersects two sorted posting lists. A null list means no filter, and a
+     * missing key, passed as null for the second list, matches nothing.
+     */
+    private static int[] intersect(int[] postings, int[] filter) {
+        if (filter == null) {
+            return new int[0];
+        }
+        if (postings == null) {
+            return filter;
+        }
+        int[] result = new int[Math.min(postings.length, filter.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < postings.length && j < filter.length;) {
+            if (postings[i] < filter[j]) {
+                i++;
+            } else if (postings[i] > filter[j]) {
+                j++;
+            } else {
+                result[count++] = postings[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * An immutable set of events in (Date, EventID) order with its indexes.
+     * Index entries are sorted arrays of positions in the events array.
+     */
+    private static final class Snapshot {
+        private final EventRecord[] events;
+        // Epoch days, parallel to events
+        private final int[] dates;
+        private final Map<String, EventRecord> byID;
+        private final Map<String, int[]> byVenue;
+        private final Map<String, int[]> byGenre;
+        private final Map<String, int[]> byArtistID;
+
+        private Snapshot(EventRecord[] events, Map<String, EventRecord> byID, Map<String, int[]> byVenue,
+                Map<String, int[]> byGenre, Map<String, int[]> byArtistID) {
+            this.events = events;
+            this.dates = new int[events.length];
+            for (int i = 0; i < events.length; i++) {
+                dates[i] = events[i].getEpochDay();
+            }
+            this.byID = byID;
+            this.byVenue = byVenue;
+            this.byGenre = byGenre;
+            this.byArtistID = byArtistID;
+        }
+
+        static Snapshot build(Collection<EventRecord> records) {
+            EventRecord[] events = records.toArray(new EventRecord[0]);
+            Arrays.sort(events, Comparator.comparingInt(EventRecord::getEpochDay)
+                    .thenComparing(EventRecord::getEventID));
+
+            Map<String, EventRecord> byID = new HashMap<>(events.length * 2);
+            Map<String, List<Integer>> venues = new HashMap<>();
+            Map<String, List<Integer>> genres = new HashMap<>();
+            Map<String, List<Integer>> artistIDs = new HashMap<>();
+            for (int i = 0; i < events.length; i++) {
+                EventRecord event = events[i];
+                byID.put(event.getEventID(), event);
+                if (event.getLocation() != null) {
+                    addPosting(venues, ArtistCache.normalize(event.getLocation()), i);
+                }
+                Set<String> eventGenres = new LinkedHashSet<>();
+                for (String genre : event.getGenres()) {
+                    eventGenres.add(ArtistCache.normalize(genre));
+                }
+                for (String genre : eventGenres) {
+                    addPosting(genres, genre, i);
+                }
+                for (String artistID : new LinkedHashSet<>(event.getArtistIDs())) {
+                    addPosting(artistIDs, artistID, i);
+                }
+            }
+            return new Snapshot(events, byID, toArrays(venues), toArrays(genres), toArrays(artistIDs));
+        }
+
+        private static void addPosting(Map<String, List<Integer>> index, String key, int position) {
+            index.computeIfAbsent(key, k -> new ArrayList<>()).add(position);
+        }
+
+        private static Map<String, int[]> toArrays(Map<String, List<Integer>> index) {
+            Map<String, int[]> arrays = new HashMap<>(index.size() * 2);
+            for (Map.Entry<String, List<Integer>> entry : index.entrySet()) {
+                arrays.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+            return arrays;
+        }
+
+        /**
+         * Returns the position of the first event on or after the date.
+         */
+        int firstOnOrAfter(LocalDate date) {
+            int low = 0;
+            int high = dates.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (dates[middle] < date.toEpochDay()) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Returns the index in the posting list of the first event on or after
+         * the date.
+         */
+        int firstPostingOnOrAfter(int[] postings, LocalDate date) {
+            int low = 0;
+            int high = postings.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (dates[postings[middle]] < date.toEpochDay()) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
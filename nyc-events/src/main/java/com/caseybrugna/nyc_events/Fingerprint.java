@@ -0,0 +1,44 @@
+package com.caseybrugna.nyc_events;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Computes 64-bit content fingerprints of the values stored in a database row,
+ * so a row can be compared with what is already stored without reading the row
+ * back. Fingerprints are FNV-1a hashes of the UTF-8 bytes of each field, with a
+ * separator between fields so that ("ab", "c") and ("a", "bc") differ.
+ */
+public final class Fingerprint {
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+    private static final byte FIELD_SEPARATOR = 0x1f;
+    private static final byte NULL_MARKER = 0x00;
+
+    private Fingerprint() {
+    }
+
+    /**
+     * Computes the fingerprint of a row's fields, in order.
+     *
+     * @param fields The values of the row; null values are allowed.
+     * @return The 64-bit fingerprint.
+     */
+    public static long of(Object... fields) {
+        long hash = OFFSET_BASIS;
+        for (Object field : fields) {
+            if (field == null) {
+                hash = mix(hash, NULL_MARKER);
+            } else {
+                for (byte b : String.valueOf(field).getBytes(StandardCharsets.UTF_8)) {
+                    hash = mix(hash, b);
+                }
+            }
+            hash = mix(hash, FIELD_SEPARATOR);
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, byte b) {
+        return (hash ^ (b & 0xff)) * PRIME;
+    }
+}
@@ -0,0 +1,88 @@
+package com.caseybrugna.nyc_events;
+
+/**
+ * An event that is already stored in the database, with what is needed to
+ * tell whether it has changed since it was last scraped.
+ */
+public class KnownEvent {
+    private final String eventID;
+    private final String price;
+    private final String imageUrl;
+    private final String lineup;
+    private final String pageETag;
+    private final String pageLastModified;
+
+    /**
+     * Constructs a KnownEvent object with the specified details.
+     *
+     * @param eventID          the ID of the event
+     * @param price            the stored price of the event
+     * @param imageUrl         the stored image URL of the event
+     * @param lineup           the stored lineup of the event
+     * @param pageETag         the ETag the event page was last served with
+     * @param pageLastModified the Last-Modified date the event page was last
+     *                         served with
+     */
+    public KnownEvent(String eventID, String price, String imageUrl, String lineup, String pageETag,
+            String pageLastModified) {
+        this.eventID = eventID;
+        this.price = price;
+        this.imageUrl = imageUrl;
+        this.lineup = lineup;
+        this.pageETag = pageETag;
+        this.pageLastModified = pageLastModified;
+    }
+
+    /**
+     * Returns the ID of the event.
+     *
+     * @return the event ID
+     */
+    public String getEventID() {
+        return eventID;
+    }
+
+    /**
+     * Returns the stored lineup of the event, as written by
+     * Event.getLineupAsString.
+     *
+     * @return the lineup, or null if none was stored
+     */
+    public String getLineup() {
+        return lineup;
+    }
+
+    /**
+     * Returns the stored ETag of the event page.
+     *
+     * @return the ETag, or null if none was stored
+     */
+    public String getPageETag() {
+        return pageETag;
+    }
+
+    /**
+     * Returns the stored Last-Modified date of the event page.
+     *
+     * @return the Last-Modified header, or null if none was stored
+     */
+    public String getPageLastModified() {
+        return pageLastModified;
+    }
+
+    /**
+     * Returns whether a freshly scraped event has the same price, image and
+     * lineup as the stored one.
+     *
+     * @param event the freshly scraped event
+     * @return true if nothing that is stored has changed
+     */
+    public boolean isUnchanged(Event event) {
+        return equalsOrBothEmpty(price, event.getPrice()) && equalsOrBothEmpty(imageUrl, event.getImageUrl())
+                && equalsOrBothEmpty(lineup, event.getLineupAsString());
+    }
+
+    private static boolean equalsOrBothEmpty(String a, String b) {
+        return (a == null ? "" : a).equals(b == null ? "" : b);
+    }
+}
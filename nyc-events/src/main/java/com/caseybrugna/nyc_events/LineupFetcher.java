@@ -0,0 +1,197 @@
+package com.caseybrugna.nyc_events;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Fetches the lineups of events from their Dice event pages.
+ * Pages are downloaded concurrently over a shared HTTP/2 client that keeps its
+ * connections alive between requests, with a limit on the total number of
+ * requests in flight and on the number sent to any one host. The downloaded
+ * HTML is parsed on a separate pool sized to the number of CPUs, so parsing
+ * never holds up the network threads.
+ */
+public class LineupFetcher implements AutoCloseable {
+    private static final String LINEUP_SELECTOR = "div.EventDetailsLineup__ArtistTitle-gmffoe-10";
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 "
+            + "(KHTML, like Gecko) Chrome/114.0.0.0 Safari/537.36";
+    private static final int DEFAULT_PARALLELISM = 16;
+    private static final int DEFAULT_PER_HOST = 8;
+    private static final Duration TIMEOUT = Duration.ofSeconds(20);
+
+    private final HttpClient client;
+    private final ExecutorService fetchPool;
+    private final ExecutorService parsePool;
+    private final int perHostLimit;
+    private final ConcurrentMap<String, Semaphore> hostLimits = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for the LineupFetcher class.
+     *
+     * @param parallelism  The maximum number of pages fetched at once.
+     * @param perHostLimit The maximum number of pages fetched at once from a
+     *                     single host.
+     */
+    public LineupFetcher(int parallelism, int perHostLimit) {
+        this.fetchPool = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        this.parsePool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this.perHostLimit = Math.max(1, perHostLimit);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(TIMEOUT)
+                .build();
+    }
+
+    /**
+     * Creates a LineupFetcher configured from the .env file.
+     * LINEUP_FETCH_PARALLELISM and LINEUP_FETCH_PER_HOST override the
+     * defaults.
+     *
+     * @return The configured LineupFetcher.
+     */
+    public static LineupFetcher fromConfig() {
+        Dotenv dotenv = Dotenv.configure()
+                .directory("src/main/resources")
+                .load();
+        int parallelism = DEFAULT_PARALLELISM;
+        int perHost = DEFAULT_PER_HOST;
+        try {
+            parallelism = Integer.parseInt(dotenv.get("LINEUP_FETCH_PARALLELISM", String.valueOf(parallelism)).trim());
+            perHost = Integer.parseInt(dotenv.get("LINEUP_FETCH_PER_HOST", String.valueOf(perHost)).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid lineup fetcher setting, using defaults: " + e.getMessage());
+        }
+        return new LineupFetcher(parallelism, perHost);
+    }
+
+    /**
+     * Starts fetching the lineup of an event in the background.
+     * If validators from an earlier fetch are given, the page is requested
+     * conditionally and a page the server reports as unchanged is not
+     * downloaded again.
+     * If the page cannot be fetched, the future completes with null.
+     * The time taken by each fetch is recorded in the dice.lineup.fetch timer.
+     *
+     * @param eventLink    The URL of the event page.
+     * @param eTag         The ETag from an earlier fetch, or null.
+     * @param lastModified The Last-Modified date from an earlier fetch, or null.
+     * @return A future that completes with the fetched page.
+     */
+    public CompletableFuture<LineupPage> fetchLineup(String eventLink, String eTag, String lastModified) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            HttpResponse<String> response = send(eventLink, eTag, lastModified);
+            String outcome = response == null ? "failed" : response.statusCode() == 304 ? "not_modified" : "fetched";
+            RunMetrics.record("dice.lineup.fetch", start, outcome);
+            return response;
+        }, fetchPool)
+                .thenApplyAsync(response -> {
+                    if (response == null) {
+                        return null;
+                    } else if (response.statusCode() == 304) {
+                        return LineupPage.notModified();
+                    }
+                    return LineupPage.of(parseLineup(response.body(), eventLink),
+                            response.headers().firstValue("ETag").orElse(null),
+                            response.headers().firstValue("Last-Modified").orElse(null));
+                }, parsePool);
+    }
+
+    /**
+     * Downloads a page on the calling thread.
+     *
+     * @param url The URL of the page.
+     * @return The HTML of the page, or null if an error occurred.
+     */
+    public String fetchPage(String url) {
+        HttpResponse<String> response = send(url, null, null);
+        return response != null ? response.body() : null;
+    }
+
+    /**
+     * Sends a GET request, waiting for a free slot for its host first.
+     *
+     * @param url          The URL of the page.
+     * @param eTag         The ETag to send as If-None-Match, or null.
+     * @param lastModified The date to send as If-Modified-Since, or null.
+     * @return The response if the page was returned or was not modified, or
+     *         null if an error occurred.
+     */
+    private HttpResponse<String> send(String url, String eTag, String lastModified) {
+        Semaphore hostLimit = null;
+        try {
+            URI uri = URI.create(url);
+            Semaphore limit = hostLimits.computeIfAbsent(String.valueOf(uri.getHost()),
+                    host -> new Semaphore(perHostLimit));
+            limit.acquire();
+            hostLimit = limit;
+
+            HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                    .timeout(TIMEOUT)
+                    .header("User-Agent", USER_AGENT)
+                    .GET();
+            if (eTag != null) {
+                request.header("If-None-Match", eTag);
+            }
+            if (lastModified != null) {
+                request.header("If-Modified-Since", lastModified);
+            }
+            HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200 && response.statusCode() != 304) {
+                System.err.println("An error occurred while extracting the lineup: HTTP " + response.statusCode()
+                        + " for " + url);
+                return null;
+            }
+            return response;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("An error occurred while extracting the lineup: " + e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            if (hostLimit != null) {
+                hostLimit.release();
+            }
+        }
+    }
+
+    /**
+     * Extracts the lineup from the HTML of an event page.
+     *
+     * @param html      The HTML of the event page.
+     * @param eventLink The URL of the event page, used to resolve links.
+     * @return The lineup as shown on the page, or null if there is none.
+     */
+    static String parseLineup(String html, String eventLink) {
+        Document eventDocument = Jsoup.parse(html, eventLink);
+        Element artistElement = eventDocument.selectFirst(LINEUP_SELECTOR);
+        return artistElement != null ? artistElement.text() : null;
+    }
+
+    /**
+     * Shuts down the fetch and parse pools.
+     */
+    @Override
+    public void close() {
+        fetchPool.shutdownNow();
+        parsePool.shutdownNow();
+    }
+}
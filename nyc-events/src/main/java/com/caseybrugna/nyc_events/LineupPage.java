@@ -0,0 +1,58 @@
+package com.caseybrugna.nyc_events;
+
+/**
+ * The result of fetching an event page: the lineup it shows and the
+ * validators it was served with, or a note that it has not changed.
+ */
+class LineupPage {
+    private static final LineupPage NOT_MODIFIED = new LineupPage(null, null, null, true);
+
+    private final String lineup;
+    private final String eTag;
+    private final String lastModified;
+    private final boolean notModified;
+
+    private LineupPage(String lineup, String eTag, String lastModified, boolean notModified) {
+        this.lineup = lineup;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.notModified = notModified;
+    }
+
+    /**
+     * Creates a LineupPage for a page that was downloaded.
+     *
+     * @param lineup       the lineup shown on the page, or null
+     * @param eTag         the ETag header of the page, or null
+     * @param lastModified the Last-Modified header of the page, or null
+     * @return the LineupPage
+     */
+    static LineupPage of(String lineup, String eTag, String lastModified) {
+        return new LineupPage(lineup, eTag, lastModified, false);
+    }
+
+    /**
+     * Returns the LineupPage for a page the server reported as unchanged.
+     *
+     * @return the LineupPage
+     */
+    static LineupPage notModified() {
+        return NOT_MODIFIED;
+    }
+
+    String getLineup() {
+        return lineup;
+    }
+
+    String getETag() {
+        return eTag;
+    }
+
+    String getLastModified() {
+        return lastModified;
+    }
+
+    boolean isNotModified() {
+        return notModified;
+    }
+}
@@ -0,0 +1,102 @@
+package com.caseybrugna.nyc_events;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the precomputed listing snapshots. The bytes are written as they
+ * are stored, gzipped if the client accepts it, and a client that already has
+ * the current snapshot gets 304 Not Modified without a body. The ETag only
+ * changes with the listing's content, and Last-Modified says when it did.
+ */
+@RestController
+@RequestMapping("/api/listings")
+public class ListingController {
+    private static final long MAX_AGE_SECONDS = 60;
+
+    private final ListingSnapshots listingSnapshots;
+
+    /**
+     * Constructor for the ListingController class.
+     *
+     * @param listingSnapshots The snapshots to serve.
+     */
+    public ListingController(ListingSnapshots listingSnapshots) {
+        this.listingSnapshots = listingSnapshots;
+    }
+
+    /**
+     * Returns a listing of upcoming events.
+     *
+     * @param listing        "tonight", "weekend" or "week".
+     * @param ifNoneMatch    The ETags of the copies the client already has.
+     * @param acceptEncoding The encodings the client accepts.
+     * @return The listing, 304 Not Modified, or 404 Not Found if there is no
+     *         such listing or it has not been generated yet.
+     */
+    @GetMapping("/{listing}")
+    public ResponseEntity<byte[]> getListing(@PathVariable String listing,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ListingSnapshots.Snapshot snapshot = listingSnapshots.get(listing);
+        if (snapshot == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String eTag = gzip ? snapshot.getGzipETag() : snapshot.getETag();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(eTag);
+        headers.setLastModified(snapshot.getLastModified());
+        headers.setCacheControl(CacheControl.maxAge(MAX_AGE_SECONDS, TimeUnit.SECONDS).cachePublic());
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (matches(ifNoneMatch, eTag)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        byte[] body = gzip ? snapshot.getGzip() : snapshot.getJson();
+        headers.setContentLength(body.length);
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").equalsIgnoreCase("q=0");
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,375 @@
+package com.caseybrugna.nyc_events;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The most requested event listings (tonight, this weekend and this week),
+ * rendered to JSON once per scrape run instead of once per request.
+ * Each listing is stored as plain and gzipped JSON files so that any API node
+ * can load it, and is served straight from memory with a strong ETag, so a
+ * listing request costs no serialization and no database work.
+ * The JSON holds nothing that changes from run to run unless the events do,
+ * so the ETag stays the same across runs that find no changes; when the
+ * listing was last changed is kept as its Last-Modified time instead. A
+ * listing whose date range has moved on, such as "tonight" after midnight, is
+ * re-rendered from the event source if one is set, or else no longer served.
+ */
+public class ListingSnapshots {
+    public static final List<String> LISTINGS = Collections.unmodifiableList(
+            Arrays.asList("tonight", "weekend", "week"));
+
+    private static final String DEFAULT_DIRECTORY = "snapshots";
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+    private static final Gson GSON = new Gson();
+
+    private final Path directory;
+    private final AtomicReference<Map<String, Snapshot>> snapshots = new AtomicReference<>(Collections.emptyMap());
+    private volatile Supplier<List<EventRecord>> eventSource;
+
+    /**
+     * A rendered listing in each of its encodings.
+     */
+    public static final class Snapshot {
+        private final byte[] json;
+        private final byte[] gzip;
+        private final LocalDate from;
+        private final LocalDate to;
+        private final Instant lastModified;
+        private final String eTag;
+        private final String gzipETag;
+
+        Snapshot(byte[] json, byte[] gzip, LocalDate from, LocalDate to, Instant lastModified) {
+            this.json = json;
+            this.gzip = gzip;
+            this.from = from;
+            this.to = to;
+            this.lastModified = lastModified;
+            String hash = sha256(json);
+            this.eTag = "\"" + hash + "\"";
+            // A strong ETag identifies one exact representation
+            this.gzipETag = "\"" + hash + "-gzip\"";
+        }
+
+        /**
+         * Returns the listing as UTF-8 JSON.
+         *
+         * @return the JSON bytes; must not be modified
+         */
+        public byte[] getJson() {
+            return json;
+        }
+
+        /**
+         * Returns the listing as gzipped UTF-8 JSON.
+         *
+         * @return the gzipped bytes; must not be modified
+         */
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        /**
+         * Returns the strong ETag of the plain JSON.
+         *
+         * @return the quoted ETag
+         */
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * Returns the strong ETag of the gzipped JSON.
+         *
+         * @return the quoted ETag
+         */
+        public String getGzipETag() {
+            return gzipETag;
+        }
+
+        /**
+         * Returns when the listing last changed.
+         *
+         * @return the time the listing was first rendered as it is now
+         */
+        public Instant getLastModified() {
+            return lastModified;
+        }
+
+        private boolean covers(LocalDate[] range) {
+            return from.equals(range[0]) && to.equals(range[1]);
+        }
+    }
+
+    /**
+     * Constructor for the ListingSnapshots class.
+     *
+     * @param directory The directory the snapshot files are kept in.
+     */
+    public ListingSnapshots(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Creates a ListingSnapshots object whose directory is read from
+     * SNAPSHOT_DIR in the .env file.
+     *
+     * @return The ListingSnapshots object.
+     */
+    public static ListingSnapshots fromConfig() {
+        Dotenv dotenv = Dotenv.configure()
+                .directory("src/main/resources")
+                .load();
+        return new ListingSnapshots(Paths.get(dotenv.get("SNAPSHOT_DIR", DEFAULT_DIRECTORY)));
+    }
+
+    /**
+     * Sets where a listing whose date range has moved on since it was
+     * rendered gets its events from, so that it can be rendered again for the
+     * current day. The API sets this to its EventStore; without it, such a
+     * listing is not served until the next scrape run.
+     *
+     * @param eventSource Supplies every upcoming event, in (Date, EventID)
+     *                    order.
+     */
+    public void setEventSource(Supplier<List<EventRecord>> eventSource) {
+        this.eventSource = eventSource;
+    }
+
+    /**
+     * Renders every listing from the stored upcoming events, writes the files
+     * and swaps the new snapshots in. Run after a scrape's events have been
+     * committed and before the run is recorded, so that API nodes reloading
+     * for the new run find the new files. A listing that has not changed is
+     * not written again, so its files keep their modification time.
+     *
+     * @param events Every upcoming event, in (Date, EventID) order.
+     */
+    public void generate(List<EventRecord> events) {
+        LocalDate today = LocalDate.now(NEW_YORK);
+        Map<String, Snapshot> rendered = new HashMap<>();
+        try {
+            Files.createDirectories(directory);
+            for (String listing : LISTINGS) {
+                LocalDate[] range = dateRange(listing, today);
+                byte[] json = render(listing, range[0], range[1], events);
+                Path jsonFile = directory.resolve(listing + ".json");
+                Path gzipFile = directory.resolve(listing + ".json.gz");
+                byte[] gzip;
+                if (Files.exists(jsonFile) && Files.exists(gzipFile)
+                        && Arrays.equals(json, Files.readAllBytes(jsonFile))) {
+                    gzip = Files.readAllBytes(gzipFile);
+                } else {
+                    gzip = gzip(json);
+                    write(listing + ".json.gz", gzip);
+                    // Written last, so a partly written pair looks changed next time
+                    write(listing + ".json", json);
+                }
+                // The same time API nodes read when they load the files
+                rendered.put(listing, new Snapshot(json, gzip, range[0], range[1],
+                        Files.getLastModifiedTime(jsonFile).toInstant()));
+            }
+            snapshots.set(rendered);
+            System.out.println("Generated " + rendered.size() + " listing snapshots in " + directory + ".");
+        } catch (IOException e) {
+            System.err.println("Could not write the listing snapshots: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the snapshot files written by the last scrape run into memory.
+     * Listings whose files are missing are left out.
+     */
+    public synchronized void load() {
+        Map<String, Snapshot> loaded = new HashMap<>();
+        for (String listing : LISTINGS) {
+            Path json = directory.resolve(listing + ".json");
+            Path gzip = directory.resolve(listing + ".json.gz");
+            try {
+                if (Files.exists(json) && Files.exists(gzip)) {
+                    byte[] jsonBytes = Files.readAllBytes(json);
+                    JsonObject root = JsonParser.parseString(new String(jsonBytes, StandardCharsets.UTF_8))
+                            .getAsJsonObject();
+                    loaded.put(listing, new Snapshot(jsonBytes, Files.readAllBytes(gzip),
+                            LocalDate.parse(root.get("from").getAsString()),
+                            LocalDate.parse(root.get("to").getAsString()),
+                            Files.getLastModifiedTime(json).toInstant()));
+                }
+            } catch (IOException | RuntimeException e) {
+                // RuntimeException covers unreadable JSON and dates
+                System.err.println("Could not read the " + listing + " snapshot: " + e.getMessage());
+            }
+        }
+        snapshots.set(loaded);
+        System.out.println("Loaded " + loaded.size() + " listing snapshots from " + directory + ".");
+    }
+
+    /**
+     * Returns a listing's current snapshot. If the listing's date range has
+     * moved on since it was rendered, it is rendered again from the event
+     * source first.
+     *
+     * @param listing The name of the listing, for example "tonight".
+     * @return The snapshot, or null if there is none or it is out of date and
+     *         there is no event source to render it again from.
+     */
+    public Snapshot get(String listing) {
+        Snapshot snapshot = snapshots.get().get(listing);
+        if (snapshot == null || snapshot.covers(dateRange(listing, LocalDate.now(NEW_YORK)))) {
+            return snapshot;
+        }
+        return rerender(listing);
+    }
+
+    /**
+     * Renders one listing again for the current day from the event source,
+     * in memory only, and swaps it in. The files are left to the next scrape
+     * run.
+     */
+    private synchronized Snapshot rerender(String listing) {
+        LocalDate[] range = dateRange(listing, LocalDate.now(NEW_YORK));
+        Map<String, Snapshot> current = snapshots.get();
+        Snapshot snapshot = current.get(listing);
+        if (snapshot == null || snapshot.covers(range)) {
+            // Loaded or rendered again while waiting for the lock
+            return snapshot;
+        }
+
+        Map<String, Snapshot> updated = new HashMap<>(current);
+        Supplier<List<EventRecord>> source = eventSource;
+        if (source == null) {
+            updated.remove(listing);
+            snapshot = null;
+        } else {
+            byte[] json = render(listing, range[0], range[1], source.get());
+            try {
+                snapshot = new Snapshot(json, gzip(json), range[0], range[1], Instant.now());
+                updated.put(listing, snapshot);
+            } catch (IOException e) {
+                System.err.println("Could not render the " + listing + " listing again: " + e.getMessage());
+                updated.remove(listing);
+                snapshot = null;
+            }
+        }
+        snapshots.set(updated);
+        return snapshot;
+    }
+
+    /**
+     * Returns the first and last date of a listing. The weekend runs from
+     * Friday to Sunday; from Monday to Thursday it is the coming one.
+     */
+    static LocalDate[] dateRange(String listing, LocalDate today) {
+        switch (listing) {
+            case "tonight":
+                return new LocalDate[] { today, today };
+            case "weekend":
+                LocalDate sunday = today.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
+                LocalDate friday = sunday.minusDays(2);
+                return new LocalDate[] { today.isAfter(friday) ? today : friday, sunday };
+            case "week":
+                return new LocalDate[] { today, today.plusDays(6) };
+            default:
+                throw new IllegalArgumentException("Unknown listing: " + listing);
+        }
+    }
+
+    private static byte[] render(String listing, LocalDate from, LocalDate to, List<EventRecord> events) {
+        JsonArray array = new JsonArray();
+        for (EventRecord event : events) {
+            LocalDate date = event.getLocalDate();
+            if (!date.isBefore(from) && !date.isAfter(to)) {
+                array.add(toJson(event));
+            }
+        }
+
+        JsonObject root = new JsonObject();
+        root.addProperty("listing", listing);
+        root.addProperty("from", from.toString());
+        root.addProperty("to", to.toString());
+        root.add("events", array);
+        return GSON.toJson(root).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Renders an event with the same fields the read API returns for it.
+     */
+    private static JsonObject toJson(EventRecord event) {
+        JsonObject object = new JsonObject();
+        object.addProperty("eventID", event.getEventID());
+        object.addProperty("eventName", event.getEventName());
+        object.addProperty("date", event.getDate());
+        object.addProperty("location", event.getLocation());
+        object.addProperty("price", event.getPrice());
+        object.addProperty("link", event.getLink());
+        object.addProperty("imageUrl", event.getImageUrl());
+        object.add("lineup", toJsonArray(event.getLineup()));
+        object.add("artistIDs", toJsonArray(event.getArtistIDs()));
+        object.add("genres", toJsonArray(event.getGenres()));
+        object.addProperty("popularityScore", event.getPopularityScore());
+        return object;
+    }
+
+    private static JsonArray toJsonArray(List<String> values) {
+        JsonArray array = new JsonArray();
+        for (String value : values) {
+            array.add(value);
+        }
+        return array;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void write(String fileName, byte[] data) throws IOException {
+        Path target = directory.resolve(fileName).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), fileName, ".tmp");
+        Files.write(temp, data);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
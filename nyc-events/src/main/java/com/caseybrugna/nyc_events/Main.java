@@ -1,12 +1,13 @@
 package com.caseybrugna.nyc_events;
 
-import java.util.List;
-
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import io.github.cdimascio.dotenv.Dotenv;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -18,75 +19,105 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class Main {
     /**
      * The main method of the application.
-     * It first scrapes event data from the Dice website using the DiceScraper
-     * class.
-     * Then, it creates a SpotifyAPIClient object and uses it to retrieve artist
-     * data for each artist in each event's lineup.
+     * If it is started with the "serve" argument, it runs the read API
+     * instead of scraping; see EventController. With "migrate-event-keys" it
+     * gives the events stored before event keys were introduced their key;
+     * see the 005 and 006 migrations.
+     * Otherwise it first scrapes event data from the Dice website using the
+     * DiceScraper class. If INCREMENTAL_SCRAPE is enabled in the .env file,
+     * only events that are new or have changed since the last run are scraped
+     * and enriched.
+     * Events are passed through an EventPipeline as soon as they are scraped:
+     * an ArtistEnricher retrieves artist data for each artist in each event's
+     * lineup, several events at a time, and the enriched events are written to
+     * the database in small batches while the scrape is still running.
      * If an artist exists on Spotify, an Artist object is created for them and
      * added to the event.
      * If an error occurs during the creation of an Artist object, it is logged and
      * the program continues with the next artist.
      * If an error occurs during the scraping of events, it is logged and the
-     * program terminates.
+     * program terminates. If the event key migration has not been completed,
+     * nothing is scraped.
+     * When the run has finished, the most requested listings are rendered to
+     * snapshot files and the run is recorded, so that running read APIs drop
+     * their cached responses and load the new snapshots.
+     * The timings and counts of the run are printed and written to
+     * METRICS_FILE; see RunMetrics. The read API serves the same metrics at
+     * /actuator/prometheus.
      *
-     * @param args The command line arguments. These are not used in this method.
+     * @param args The command line arguments: "serve" to run the read API, or
+     *             "migrate-event-keys" to key existing events.
      */  
     public static void main(String[] args) {
-        List<Event> events = DiceScraper.scrapeEvents();
-        List<Artist> artists = new ArrayList<>();
-        try {
-
-            SpotifyAPIClient spotify = new SpotifyAPIClient();
-
-            for (Event event : events) {
-                if (event.getLineup() != null) {
-                    for (String artistString : event.getLineup()) {
-                        try {
-                            Artist artist = new Artist(artistString, spotify);
-                            artists.add(artist);
-                            event.addArtist(artist);
-                            System.out.println(artist);
-                            System.out.println();
-                        } catch (RuntimeException e) {
-                            System.err.println("An error occurred while creating " + artistString + e.getMessage());
-                        }
-                    }
-                }
-            }
-        } catch (RuntimeException e) {
-            System.err.println("An error occurred while scraping the events in the main: " + e.getMessage());
+        if (args.length > 0 && "serve".equals(args[0])) {
+            SpringApplication app = new SpringApplication(Main.class);
+            app.setDefaultProperties(Collections.singletonMap(
+                    "management.endpoints.web.exposure.include", "health,prometheus"));
+            app.run(args);
+            return;
+        }
+        if (args.length > 0 && "migrate-event-keys".equals(args[0])) {
+            DatabaseDAO databaseDAO = DatabaseDAO.fromConfig();
+            databaseDAO.connect();
+            System.out.println("Gave " + databaseDAO.backfillEventKeys() + " events a key.");
+            databaseDAO.disconnect();
+            return;
         }
-
-        String url = "jdbc:mysql://localhost:3306/events_db?serverTimezone=UTC";
 
         Dotenv dotenv = Dotenv.configure()
                 .directory("src/main/resources")
                 .load();
-        String user = dotenv.get("DB_USER");
-        String password = dotenv.get("DB_PASSWORD");
+        boolean incremental = Boolean.parseBoolean(dotenv.get("INCREMENTAL_SCRAPE", "false"));
+
+        PrometheusMeterRegistry metrics = RunMetrics.startRun();
+        DatabaseDAO databaseDAO = DatabaseDAO.fromConfig();
 
-        DatabaseDAO databaseDAO = new DatabaseDAO(url, user, password);
         databaseDAO.connect();
+        if (!databaseDAO.hasEventKeySchema()) {
+            // Between the 005 and 006 migrations, EventID is still the
+            // primary key, but the scraper only writes EventKey
+            System.err.println("The Events table is not keyed by EventKey yet; run migrate-event-keys and "
+                    + "006_event_keys_primary.sql before scraping. Nothing was scraped.");
+            databaseDAO.disconnect();
+            return;
+        }
+
+        Map<String, KnownEvent> knownEvents = Collections.emptyMap();
+        if (incremental) {
+            knownEvents = databaseDAO.loadKnownEvents();
+        }
 
         // Perform database operations using the databaseDAO object
         databaseDAO.deleteOldEvents();
-        databaseDAO.insertArtists(artists);
-        databaseDAO.insertEvents(events);
-        databaseDAO.insertTracks(artists);
-        databaseDAO.insertEventArtists(events);
+        databaseDAO.loadFingerprints();
 
-        databaseDAO.disconnect();
+        try {
+            ArtistCache artistCache = ArtistCache.fromConfig();
+            SpotifyAPIClient spotify = new SpotifyAPIClient(artistCache);
+            ArtistEnricher enricher = new ArtistEnricher(spotify);
+
+            EventPipeline pipeline = EventPipeline.fromConfig(enricher, databaseDAO);
+            pipeline.run(knownEvents);
+            List<EventRecord> upcomingEvents = databaseDAO.loadUpcomingEventRecords();
+            if (upcomingEvents != null) {
+                ListingSnapshots.fromConfig().generate(upcomingEvents);
+            } else {
+                System.err.println("Could not load the upcoming events, keeping the previous snapshots.");
+            }
+            databaseDAO.recordScrapeRun(pipeline.getStoredEvents());
 
-        System.out.println("*****CHECKING IF DATA IS THERE FOR ARTISTS*****");
-        for (Artist artist : artists) {
-            System.out.println("Artist ID: " + artist.getArtistID());
-            System.out.println("Artist name: " + artist.getName());
-            System.out.println("Artist has profile: " + artist.getHasArtistProfile());
-            System.out.println("Artist pop score: " + artist.getPopularityScore());
-            System.out.println("Artist url: " + artist.getExternalUrl());
-            System.out.println("*****");
+            enricher.printStats();
+            artistCache.save();
+            artistCache.printStats();
+            spotify.getScheduler().printStats();
+            spotify.close();
+        } catch (RuntimeException e) {
+            System.err.println("An error occurred while scraping the events in the main: " + e.getMessage());
         }
 
+        databaseDAO.printWriteStats();
+        RunMetrics.finishRun(metrics);
+        databaseDAO.disconnect();
     }
 
 }
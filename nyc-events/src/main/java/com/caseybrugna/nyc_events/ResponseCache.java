@@ -0,0 +1,237 @@
+package com.caseybrugna.nyc_events;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * An in-memory cache of read API responses. Stored events only change when a
+ * scrape run commits, so responses are kept until the next run is recorded in
+ * the ScrapeRuns table, which a background thread checks every few seconds.
+ * Responses that depend on the current date carry it in their key, so they
+ * are not served after midnight, and the background thread also drops every
+ * response once the date changes so that the stale ones do not take up room.
+ * Other in-memory read models can register to be rebuilt at the same time.
+ * Concurrent requests for the same uncached response share one database read.
+ * Once maxEntries responses are cached, the least recently used one is evicted
+ * to make room, so keys that clients make up, such as arbitrary cursors, cannot
+ * push every later request past the cache.
+ */
+public class ResponseCache implements AutoCloseable {
+    private static final long DEFAULT_POLL_SECONDS = 5;
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final DatabaseDAO databaseDAO;
+    private final int maxEntries;
+    private final ScheduledExecutorService poller;
+
+    // Replaced as a whole on invalidation, so a read that started before a new
+    // run can only fill the old map, which is then discarded
+    private final AtomicReference<Responses> responses;
+    private volatile long scrapeRunID;
+    private LocalDate cachedDay = LocalDate.now();
+    private final List<Runnable> runListeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The cached responses in least recently used order, dropping the eldest
+     * once there are more than maxEntries. Guarded by its own lock.
+     */
+    private static final class Responses extends LinkedHashMap<String, CompletableFuture<Object>> {
+        private final int maxEntries;
+
+        Responses(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<Object>> eldest) {
+            return size() > maxEntries;
+        }
+    }
+
+    /**
+     * Constructor for the ResponseCache class. Starts watching for new scrape
+     * runs straight away.
+     *
+     * @param databaseDAO The connected DatabaseDAO to watch for new runs.
+     * @param pollSeconds How often to check for a new run.
+     * @param maxEntries  The maximum number of cached responses.
+     */
+    public ResponseCache(DatabaseDAO databaseDAO, long pollSeconds, int maxEntries) {
+        this.databaseDAO = databaseDAO;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.responses = new AtomicReference<>(new Responses(this.maxEntries));
+        this.scrapeRunID = databaseDAO.getLatestScrapeRunID();
+        this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "response-cache-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, pollSeconds);
+        poller.scheduleWithFixedDelay(this::checkForNewRun, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a ResponseCache configured from the .env file.
+     * API_CACHE_POLL_SECONDS and API_CACHE_MAX_ENTRIES override the defaults.
+     *
+     * @param databaseDAO The connected DatabaseDAO to watch for new runs.
+     * @return The configured ResponseCache.
+     */
+    public static ResponseCache fromConfig(DatabaseDAO databaseDAO) {
+        Dotenv dotenv = Dotenv.configure()
+                .directory("src/main/resources")
+                .load();
+        long pollSeconds = DEFAULT_POLL_SECONDS;
+        int maxEntries = DEFAULT_MAX_ENTRIES;
+        try {
+            pollSeconds = Long.parseLong(dotenv.get("API_CACHE_POLL_SECONDS", String.valueOf(pollSeconds)).trim());
+            maxEntries = Integer.parseInt(dotenv.get("API_CACHE_MAX_ENTRIES", String.valueOf(maxEntries)).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid response cache setting, using defaults: " + e.getMessage());
+        }
+        return new ResponseCache(databaseDAO, pollSeconds, maxEntries);
+    }
+
+    /**
+     * Returns the cached response for a key, loading it if it is not cached.
+     * Null responses (for example, not found) are not cached. A response that
+     * is evicted while it is loading is still returned to every request
+     * waiting for it.
+     *
+     * @param key    The key identifying the response.
+     * @param loader Loads the response from the database.
+     * @param <T>    The type of the response.
+     * @return The response, or null if the loader returned null.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        Responses current = responses.get();
+        CompletableFuture<Object> cached;
+        CompletableFuture<Object> loading = null;
+        synchronized (current) {
+            cached = current.get(key);
+            if (cached == null) {
+                loading = new CompletableFuture<>();
+                current.put(key, loading);
+            }
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return (T) cached.join();
+        }
+
+        misses.incrementAndGet();
+        try {
+            T response = loader.get();
+            if (response == null) {
+                remove(current, key, loading);
+            }
+            loading.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            remove(current, key, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static void remove(Responses current, String key, CompletableFuture<Object> loading) {
+        synchronized (current) {
+            current.remove(key, loading);
+        }
+    }
+
+    /**
+     * Registers an action to run on the polling thread whenever a new scrape
+     * run has committed, after the cached responses are dropped.
+     *
+     * @param listener The action to run.
+     */
+    public void addRunListener(Runnable listener) {
+        runListeners.add(listener);
+    }
+
+    /**
+     * Drops every cached response.
+     */
+    public void invalidate() {
+        responses.set(new Responses(maxEntries));
+    }
+
+    /**
+     * Checks whether a new scrape run has committed or the date has changed
+     * since the last check and drops the cached responses if so. Only a new
+     * run notifies the run listeners.
+     */
+    private void checkForNewRun() {
+        LocalDate today = LocalDate.now();
+        if (!today.equals(cachedDay)) {
+            cachedDay = today;
+            invalidate();
+            System.out.println("The date changed to " + today + ", response cache cleared.");
+        }
+
+        long latest = databaseDAO.getLatestScrapeRunID();
+        if (latest >= 0 && latest != scrapeRunID) {
+            scrapeRunID = latest;
+            invalidate();
+            System.out.println("Scrape run " + latest + " committed, response cache cleared.");
+            for (Runnable listener : runListeners) {
+                try {
+                    listener.run();
+                } catch (RuntimeException e) {
+                    System.err.println("An error occurred while handling scrape run " + latest + ": "
+                            + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the ID of the scrape run the cached responses belong to.
+     *
+     * @return the scrape run ID
+     */
+    public long getScrapeRunID() {
+        return scrapeRunID;
+    }
+
+    /**
+     * Prints the cache's hit ratio.
+     */
+    public void printStats() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        Responses current = responses.get();
+        int entries;
+        synchronized (current) {
+            entries = current.size();
+        }
+        System.out.printf("Response cache: %d hits, %d misses (%.1f%% hit ratio), %d entries%n",
+                hitCount, total - hitCount, total > 0 ? 100.0 * hitCount / total : 0.0, entries);
+    }
+
+    /**
+     * Stops watching for new scrape runs.
+     */
+    @Override
+    public void close() {
+        poller.shutdownNow();
+    }
+}
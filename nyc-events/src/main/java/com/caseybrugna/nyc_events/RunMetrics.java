@@ -0,0 +1,140 @@
+package com.caseybrugna.nyc_events;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The metrics of the scraper, recorded with Micrometer in the global registry
+ * so that the same instrumentation works in both modes: a scrape run collects
+ * them in a Prometheus registry and writes it to METRICS_FILE when the run
+ * ends (in the text format, for example for node_exporter's textfile
+ * collector), and the read API exposes them at /actuator/prometheus.
+ * Until a registry is added, recording is a no-op.
+ */
+public final class RunMetrics {
+    private static final String DEFAULT_FILE = "metrics/scrape-run.prom";
+
+    private RunMetrics() {
+    }
+
+    /**
+     * Returns the registry the scraper records its metrics in.
+     *
+     * @return the global registry
+     */
+    public static MeterRegistry registry() {
+        return Metrics.globalRegistry;
+    }
+
+    /**
+     * Returns a timer with a latency histogram, so that percentiles can be
+     * computed across runs and instances.
+     *
+     * @param name the name of the timer
+     * @param tags alternating tag keys and values
+     * @return the timer
+     */
+    public static Timer timer(String name, String... tags) {
+        return Timer.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry());
+    }
+
+    /**
+     * Times a piece of work, tagging the timer with its outcome: "success",
+     * or "error" if the work threw.
+     *
+     * @param name the name of the timer
+     * @param work the work to time
+     * @param tags alternating tag keys and values
+     * @param <T>  the type of the result
+     * @return the result of the work
+     */
+    public static <T> T time(String name, Supplier<T> work, String... tags) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = work.get();
+            outcome = "success";
+            return result;
+        } finally {
+            record(name, start, outcome, tags);
+        }
+    }
+
+    /**
+     * Records the time since start in a timer tagged with the outcome.
+     *
+     * @param name    the name of the timer
+     * @param start   the System.nanoTime() the work started at
+     * @param outcome the outcome of the work
+     * @param tags    alternating tag keys and values
+     */
+    public static void record(String name, long start, String outcome, String... tags) {
+        String[] allTags = new String[tags.length + 2];
+        System.arraycopy(tags, 0, allTags, 0, tags.length);
+        allTags[tags.length] = "outcome";
+        allTags[tags.length + 1] = outcome;
+        timer(name, allTags).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Starts collecting the metrics of a scrape run.
+     *
+     * @return the registry the run's metrics are collected in
+     */
+    public static PrometheusMeterRegistry startRun() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        Metrics.addRegistry(registry);
+        return registry;
+    }
+
+    /**
+     * Prints the total time spent in each timed operation of a run and writes
+     * every metric in the Prometheus text format to METRICS_FILE from the .env
+     * file.
+     *
+     * @param registry the registry returned by startRun
+     */
+    public static void finishRun(PrometheusMeterRegistry registry) {
+        System.out.println("Time spent, by operation:");
+        for (Meter meter : registry.getMeters()) {
+            if (meter instanceof Timer) {
+                Timer timer = (Timer) meter;
+                System.out.printf("  %s %s: %d calls, %.1f s total, %.1f ms max%n", meter.getId().getName(),
+                        meter.getId().getTags(), timer.count(), timer.totalTime(TimeUnit.SECONDS),
+                        timer.max(TimeUnit.MILLISECONDS));
+            }
+        }
+
+        Dotenv dotenv = Dotenv.configure()
+                .directory("src/main/resources")
+                .load();
+        Path file = Paths.get(dotenv.get("METRICS_FILE", DEFAULT_FILE)).toAbsolutePath();
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            Files.write(temp, registry.scrape().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("Wrote the run's metrics to " + file + ".");
+        } catch (IOException e) {
+            System.err.println("Could not write the run's metrics: " + e.getMessage());
+        }
+        Metrics.removeRegistry(registry);
+    }
+}
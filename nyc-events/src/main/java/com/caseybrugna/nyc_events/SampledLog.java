@@ -0,0 +1,64 @@
+package com.caseybrugna.nyc_events;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prints only a sample of a high-volume stream of log messages: the first
+ * few, then one in every LOG_SAMPLE_RATE (from the .env file), each with a
+ * count of how many have been seen, so a run's output stays readable without
+ * losing sight of progress. Counts and timings belong in RunMetrics.
+ * It is safe to use from several threads at once.
+ */
+public class SampledLog {
+    private static final int DEFAULT_RATE = 100;
+    private static final int ALWAYS_SHOWN = 5;
+    private static final int RATE;
+
+    static {
+        Dotenv dotenv = Dotenv.configure()
+                .directory("src/main/resources")
+                .load();
+        int rate = DEFAULT_RATE;
+        try {
+            rate = Math.max(1, Integer.parseInt(dotenv.get("LOG_SAMPLE_RATE", String.valueOf(rate)).trim()));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid LOG_SAMPLE_RATE value, using " + DEFAULT_RATE + ": " + e.getMessage());
+        }
+        RATE = rate;
+    }
+
+    private final String name;
+    private final AtomicLong seen = new AtomicLong();
+
+    /**
+     * Constructor for the SampledLog class.
+     *
+     * @param name What the messages are about, for example "artists".
+     */
+    public SampledLog(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Prints the message if it is part of the sample.
+     *
+     * @param message The message.
+     */
+    public void log(Object message) {
+        long count = seen.incrementAndGet();
+        if (count <= ALWAYS_SHOWN || count % RATE == 0) {
+            System.out.println("[" + name + " #" + count + "] " + message);
+        }
+    }
+
+    /**
+     * Returns the number of messages seen, whether they were printed or not.
+     *
+     * @return the number of messages
+     */
+    public long getCount() {
+        return seen.get();
+    }
+}
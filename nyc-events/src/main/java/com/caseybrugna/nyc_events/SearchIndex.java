@@ -0,0 +1,574 @@
+package com.caseybrugna.nyc_events;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * An in-process inverted index for typeahead search over event names, venues
+ * and lineup artists.
+ * Every word of a query must match a word of the event, exactly, as a prefix
+ * (the last word only, since it is still being typed) or with one typo. Typos
+ * are found through a symmetric-deletion index: each indexed word is also
+ * stored under every form with one character removed, so words one edit
+ * apart share a key. Events are ranked by how well and in which field each
+ * word matched, boosted by the popularity of the lineup's best-known artist.
+ * Each term's postings are an immutable array that is replaced when events
+ * are added, updated or removed, so queries never take a lock and score
+ * matches into plain int arrays indexed by document slot.
+ */
+public class SearchIndex {
+    private static final int ARTIST_WEIGHT = 3;
+    private static final int NAME_WEIGHT = 2;
+    private static final int VENUE_WEIGHT = 1;
+
+    private static final int EXACT_MATCH = 4;
+    private static final int PREFIX_MATCH = 2;
+    private static final int TYPO_MATCH = 1;
+
+    private static final int TYPO_MIN_LENGTH = 4;
+    private static final int MAX_PREFIX_TERMS = 256;
+
+    private final ConcurrentSkipListMap<String, Postings> postings = new ConcurrentSkipListMap<>();
+    // term with one character removed -> terms it was derived from
+    private final ConcurrentHashMap<String, Set<String>> deletions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Document> documents = new ConcurrentHashMap<>();
+
+    // Slots of removed documents are reused, so slot numbers stay dense
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private volatile int slotCount;
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * An indexed event with the terms it was indexed under, so it can be
+     * removed again, and the slot its scores are kept in during a query.
+     */
+    private static final class Document {
+        // Replaced in place when only details that are not indexed change
+        private volatile EventRecord event;
+        private final Map<String, Integer> terms;
+        private final int slot;
+
+        Document(EventRecord event, Map<String, Integer> terms, int slot) {
+            this.event = event;
+            this.terms = terms;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * The documents a term occurs in, with the highest weight of the fields
+     * it occurs in for each.
+     */
+    private static final class Postings {
+        private static final Postings EMPTY = new Postings(new Document[0], new byte[0]);
+
+        private final Document[] documents;
+        private final byte[] weights;
+
+        Postings(Document[] documents, byte[] weights) {
+            this.documents = documents;
+            this.weights = weights;
+        }
+    }
+
+    /**
+     * Per-thread score buffers, reset after each query by clearing only the
+     * slots that were touched.
+     */
+    private static final class Scratch {
+        private int[] wordScores = new int[0];
+        private int[] totalScores = new int[0];
+        private int[] matchedWords = new int[0];
+        private Document[] touched = new Document[16];
+        private Document[] wordTouched = new Document[16];
+
+        void ensureCapacity(int slots) {
+            if (wordScores.length < slots) {
+                int capacity = Math.max(slots, wordScores.length * 2);
+                wordScores = new int[capacity];
+                totalScores = new int[capacity];
+                matchedWords = new int[capacity];
+            }
+        }
+    }
+
+    /**
+     * Adds an event to the index, or updates it if it is already indexed. If
+     * its searchable text has not changed, only the event shown in results is
+     * replaced.
+     *
+     * @param event The event to index.
+     */
+    public synchronized void upsert(EventRecord event) {
+        apply(Collections.singletonList(event), Collections.emptyList());
+    }
+
+    /**
+     * Removes an event from the index.
+     *
+     * @param eventID The ID of the event.
+     */
+    public synchronized void remove(String eventID) {
+        apply(Collections.emptyList(), Collections.singletonList(eventID));
+    }
+
+    /**
+     * Brings the index in line with the given events: new and changed events
+     * are indexed and events that are no longer present are removed. Events
+     * that have not changed are left as they are, and each affected term's
+     * postings are rebuilt once for the whole batch.
+     *
+     * @param events Every event that should be searchable.
+     */
+    public synchronized void sync(Collection<EventRecord> events) {
+        Set<String> present = new HashSet<>();
+        for (EventRecord event : events) {
+            present.add(event.getEventID());
+        }
+        List<String> removed = new ArrayList<>();
+        for (String eventID : documents.keySet()) {
+            if (!present.contains(eventID)) {
+                removed.add(eventID);
+            }
+        }
+        apply(events, removed);
+    }
+
+    /**
+     * Returns the number of indexed events.
+     *
+     * @return the number of events
+     */
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Applies a batch of upserts and removals, rebuilding the postings of
+     * every term they touch.
+     */
+    private void apply(Collection<EventRecord> upserts, Collection<String> removals) {
+        Map<String, Set<Document>> removedByTerm = new HashMap<>();
+        Map<String, List<Document>> addedByTerm = new HashMap<>();
+        List<Document> released = new ArrayList<>();
+
+        for (String eventID : removals) {
+            Document existing = documents.remove(eventID);
+            if (existing != null) {
+                for (String term : existing.terms.keySet()) {
+                    removedByTerm.computeIfAbsent(term, t -> new HashSet<>()).add(existing);
+                }
+                released.add(existing);
+            }
+        }
+
+        for (EventRecord event : upserts) {
+            Map<String, Integer> terms = extractTerms(event);
+            Document existing = documents.get(event.getEventID());
+            if (existing != null && existing.terms.equals(terms)) {
+                existing.event = event;
+                continue;
+            }
+            int slot = existing == null ? allocateSlot() : existing.slot;
+            if (existing != null) {
+                for (String term : existing.terms.keySet()) {
+                    removedByTerm.computeIfAbsent(term, t -> new HashSet<>()).add(existing);
+                }
+            }
+            Document document = new Document(event, terms, slot);
+            documents.put(event.getEventID(), document);
+            for (String term : terms.keySet()) {
+                addedByTerm.computeIfAbsent(term, t -> new ArrayList<>()).add(document);
+            }
+        }
+
+        Set<String> affected = new HashSet<>(removedByTerm.keySet());
+        affected.addAll(addedByTerm.keySet());
+        for (String term : affected) {
+            rebuild(term, removedByTerm.getOrDefault(term, Collections.emptySet()),
+                    addedByTerm.getOrDefault(term, Collections.emptyList()));
+        }
+
+        // Slots are only reused once the postings no longer point at them
+        for (Document document : released) {
+            freeSlots.push(document.slot);
+        }
+    }
+
+    private int allocateSlot() {
+        Integer free = freeSlots.poll();
+        if (free != null) {
+            return free;
+        }
+        return slotCount++;
+    }
+
+    /**
+     * Replaces a term's postings with a copy that leaves out the removed
+     * documents and includes the added ones.
+     */
+    private void rebuild(String term, Set<Document> removed, List<Document> added) {
+        Postings old = postings.getOrDefault(term, Postings.EMPTY);
+        int capacity = old.documents.length + added.size();
+        Document[] termDocuments = new Document[capacity];
+        byte[] weights = new byte[capacity];
+        int count = 0;
+        for (int i = 0; i < old.documents.length; i++) {
+            if (!removed.contains(old.documents[i])) {
+                termDocuments[count] = old.documents[i];
+                weights[count++] = old.weights[i];
+            }
+        }
+        for (Document document : added) {
+            termDocuments[count] = document;
+            weights[count++] = document.terms.get(term).byteValue();
+        }
+
+        if (count == 0) {
+            if (postings.remove(term) != null) {
+                for (String deletion : deletionsOf(term)) {
+                    Set<String> derived = deletions.get(deletion);
+                    if (derived != null) {
+                        derived.remove(term);
+                        if (derived.isEmpty()) {
+                            deletions.remove(deletion);
+                        }
+                    }
+                }
+            }
+            return;
+        }
+        if (old == Postings.EMPTY) {
+            for (String deletion : deletionsOf(term)) {
+                deletions.computeIfAbsent(deletion, d -> ConcurrentHashMap.newKeySet()).add(term);
+            }
+        }
+        postings.put(term, new Postings(Arrays.copyOf(termDocuments, count), Arrays.copyOf(weights, count)));
+    }
+
+    /**
+     * Finds the best-matching events for a typeahead query.
+     *
+     * @param query The text typed so far.
+     * @param limit The maximum number of events to return.
+     * @return The matching events, best match first.
+     */
+    public List<EventRecord> search(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        Scratch buffers = scratch.get();
+        buffers.ensureCapacity(slotCount);
+        int touchedCount = 0;
+        try {
+            for (int w = 0; w < words.size(); w++) {
+                int wordTouchedCount = scoreWord(buffers, words.get(w), w == words.size() - 1);
+
+                for (int i = 0; i < wordTouchedCount; i++) {
+                    Document document = buffers.wordTouched[i];
+                    int slot = document.slot;
+                    // Only documents that matched every earlier word stay
+                    if (buffers.matchedWords[slot] == w) {
+                        if (w == 0) {
+                            buffers.touched = append(buffers.touched, touchedCount++, document);
+                        }
+                        buffers.matchedWords[slot] = w + 1;
+                        buffers.totalScores[slot] += buffers.wordScores[slot];
+                    }
+                    buffers.wordScores[slot] = 0;
+                }
+            }
+            return topResults(buffers, touchedCount, words.size(), limit);
+        } finally {
+            for (int i = 0; i < touchedCount; i++) {
+                int slot = buffers.touched[i].slot;
+                buffers.totalScores[slot] = 0;
+                buffers.matchedWords[slot] = 0;
+            }
+        }
+    }
+
+    /**
+     * Scores every document matching one query word into the word buffer,
+     * keeping the best way each document matched.
+     *
+     * @return The number of documents touched.
+     */
+    private int scoreWord(Scratch buffers, String word, boolean isPrefix) {
+        int count = scorePostings(buffers, 0, postings.get(word), EXACT_MATCH);
+
+        if (isPrefix) {
+            for (Postings termPostings : prefixPostings(word)) {
+                count = scorePostings(buffers, count, termPostings, PREFIX_MATCH);
+            }
+        }
+
+        if (word.length() >= TYPO_MIN_LENGTH) {
+            for (String term : typoCandidates(word)) {
+                count = scorePostings(buffers, count, postings.get(term), TYPO_MATCH);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the postings of the terms the word is a prefix of. A short
+     * prefix can expand to thousands of terms, so only the MAX_PREFIX_TERMS
+     * terms that occur in the most events are kept: what gets left out are
+     * rare words, not the words that come late in the alphabet.
+     */
+    private Collection<Postings> prefixPostings(String word) {
+        Collection<Postings> expansions = postings.subMap(word, false, word + Character.MAX_VALUE, false).values();
+        PriorityQueue<Postings> largest = new PriorityQueue<>(MAX_PREFIX_TERMS,
+                Comparator.comparingInt(termPostings -> termPostings.documents.length));
+        for (Postings termPostings : expansions) {
+            if (largest.size() < MAX_PREFIX_TERMS) {
+                largest.add(termPostings);
+            } else if (termPostings.documents.length > largest.peek().documents.length) {
+                largest.poll();
+                largest.add(termPostings);
+            }
+        }
+        return largest;
+    }
+
+    private static int scorePostings(Scratch buffers, int count, Postings termPostings, int matchWeight) {
+        if (termPostings == null) {
+            return count;
+        }
+        int[] scores = buffers.wordScores;
+        Document[] termDocuments = termPostings.documents;
+        byte[] weights = termPostings.weights;
+        for (int i = 0; i < termDocuments.length; i++) {
+            int slot = termDocuments[i].slot;
+            if (slot >= scores.length) {
+                // Added after the query started
+                continue;
+            }
+            int score = matchWeight * weights[i];
+            if (score > scores[slot]) {
+                if (scores[slot] == 0) {
+                    buffers.wordTouched = append(buffers.wordTouched, count++, termDocuments[i]);
+                }
+                scores[slot] = score;
+            }
+        }
+        return count;
+    }
+
+    private static Document[] append(Document[] array, int index, Document document) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+        }
+        array[index] = document;
+        return array;
+    }
+
+    /**
+     * Picks the highest-ranked documents that matched every word, keeping the
+     * best `limit` of them in a min-heap.
+     */
+    private static List<EventRecord> topResults(Scratch buffers, int touchedCount, int wordCount, int limit) {
+        Document[] heap = new Document[limit];
+        double[] ranks = new double[limit];
+        int size = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            Document document = buffers.touched[i];
+            if (buffers.matchedWords[document.slot] != wordCount) {
+                continue;
+            }
+            double rank = buffers.totalScores[document.slot] * (1.0 + document.event.getPopularityScore() / 100.0);
+            if (size < limit) {
+                heap[size] = document;
+                ranks[size] = rank;
+                siftUp(heap, ranks, size++);
+            } else if (compareRank(document, rank, heap[0], ranks[0]) > 0) {
+                heap[0] = document;
+                ranks[0] = rank;
+                siftDown(heap, ranks, size);
+            }
+        }
+
+        // Repeatedly take the lowest-ranked document off the heap, filling
+        // the results from the back
+        EventRecord[] results = new EventRecord[size];
+        for (int i = size - 1; i >= 0; i--) {
+            results[i] = heap[0].event;
+            heap[0] = heap[i];
+            ranks[0] = ranks[i];
+            siftDown(heap, ranks, i);
+        }
+        return Arrays.asList(results);
+    }
+
+    private static void siftUp(Document[] heap, double[] ranks, int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (compareRank(heap[index], ranks[index], heap[parent], ranks[parent]) >= 0) {
+                return;
+            }
+            swap(heap, ranks, index, parent);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(Document[] heap, double[] ranks, int size) {
+        int index = 0;
+        while (true) {
+            int smallest = index;
+            for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                if (compareRank(heap[child], ranks[child], heap[smallest], ranks[smallest]) < 0) {
+                    smallest = child;
+                }
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(heap, ranks, index, smallest);
+            index = smallest;
+        }
+    }
+
+    private static void swap(Document[] heap, double[] ranks, int a, int b) {
+        Document document = heap[a];
+        heap[a] = heap[b];
+        heap[b] = document;
+        double rank = ranks[a];
+        ranks[a] = ranks[b];
+        ranks[b] = rank;
+    }
+
+    /**
+     * Orders a lower rank first, breaking ties in favour of the sooner event.
+     */
+    private static int compareRank(Document a, double rankA, Document b, double rankB) {
+        int byRank = Double.compare(rankA, rankB);
+        if (byRank != 0) {
+            return byRank;
+        }
+        return Integer.compare(b.event.getEpochDay(), a.event.getEpochDay());
+    }
+
+    /**
+     * Finds the indexed terms one insertion, deletion, substitution or
+     * transposition away from the word.
+     */
+    private Set<String> typoCandidates(String word) {
+        Set<String> candidates = new HashSet<>();
+        // The word with a character missing
+        addAll(candidates, deletions.get(word));
+        for (String deletion : deletionsOf(word)) {
+            // The word with an extra character
+            if (postings.containsKey(deletion)) {
+                candidates.add(deletion);
+            }
+            // The word with a character replaced or swapped
+            addAll(candidates, deletions.get(deletion));
+        }
+        candidates.remove(word);
+        candidates.removeIf(candidate -> !isOneEditApart(word, candidate));
+        return candidates;
+    }
+
+    private static void addAll(Set<String> target, Set<String> source) {
+        if (source != null) {
+            target.addAll(source);
+        }
+    }
+
+    /**
+     * Collects the terms of an event with the highest weight of the fields
+     * they appear in.
+     */
+    private static Map<String, Integer> extractTerms(EventRecord event) {
+        Map<String, Integer> terms = new LinkedHashMap<>();
+        addTerms(terms, event.getLocation(), VENUE_WEIGHT);
+        addTerms(terms, event.getEventName(), NAME_WEIGHT);
+        for (String artist : event.getLineup()) {
+            addTerms(terms, artist, ARTIST_WEIGHT);
+        }
+        return terms;
+    }
+
+    private static void addTerms(Map<String, Integer> terms, String text, int weight) {
+        for (String term : tokenize(text)) {
+            terms.merge(term, weight, Math::max);
+        }
+    }
+
+    /**
+     * Splits text into lowercase words without accents, so that artists with
+     * accented names can be found by typing their names without accents.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        for (String word : folded.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static List<String> deletionsOf(String term) {
+        List<String> result = new ArrayList<>();
+        if (term.length() < TYPO_MIN_LENGTH) {
+            return result;
+        }
+        for (int i = 0; i < term.length(); i++) {
+            result.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether two different words are one insertion, deletion,
+     * substitution or adjacent transposition apart.
+     */
+    private static boolean isOneEditApart(String a, String b) {
+        if (Math.abs(a.length() - b.length()) > 1) {
+            return false;
+        }
+        int start = 0;
+        while (start < a.length() && start < b.length() && a.charAt(start) == b.charAt(start)) {
+            start++;
+        }
+        int endA = a.length();
+        int endB = b.length();
+        while (endA > start && endB > start && a.charAt(endA - 1) == b.charAt(endB - 1)) {
+            endA--;
+            endB--;
+        }
+        int differingA = endA - start;
+        int differingB = endB - start;
+        if (differingA <= 1 && differingB <= 1) {
+            return true;
+        }
+        return differingA == 2 && differingB == 2
+                && a.charAt(start) == b.charAt(start + 1) && a.charAt(start + 1) == b.charAt(start);
+    }
+}
@@ -3,19 +3,16 @@ package com.caseybrugna.nyc_events;
 import io.github.cdimascio.dotenv.Dotenv;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.Arrays;
 
 import com.wrapper.spotify.SpotifyApi;
 import com.wrapper.spotify.exceptions.SpotifyWebApiException;
-import com.wrapper.spotify.model_objects.credentials.ClientCredentials;
-import com.wrapper.spotify.requests.authorization.client_credentials.ClientCredentialsRequest;
-import com.wrapper.spotify.requests.data.search.SearchItemRequest;
-import com.wrapper.spotify.requests.data.tracks.GetSeveralTracksRequest;
+import com.wrapper.spotify.exceptions.detailed.TooManyRequestsException;
+import com.wrapper.spotify.exceptions.detailed.UnauthorizedException;
 import com.wrapper.spotify.model_objects.specification.Artist;
 import com.wrapper.spotify.model_objects.specification.Paging;
 import com.wrapper.spotify.model_objects.specification.Track;
-import com.wrapper.spotify.requests.data.artists.GetArtistRequest;
-import com.wrapper.spotify.requests.data.artists.GetArtistsTopTracksRequest;
 
 import com.neovisionaries.i18n.CountryCode;
 
@@ -25,7 +22,36 @@ import com.neovisionaries.i18n.CountryCode;
 public class SpotifyAPIClient {
     private static final String CLIENT_ID;
     private static final String CLIENT_SECRET;
-    private final SpotifyApi spotifyApi;
+    private static final String API_SCHEME;
+    private static final String API_HOST;
+    private static final int API_PORT;
+    private static final URI TOKEN_URI;
+    private final ArtistCache cache;
+    private final SpotifyRequestScheduler scheduler;
+    private final SpotifyTokenManager tokenManager;
+
+    /**
+     * A single Spotify request, built from the SpotifyApi object it is given
+     * so that it is sent with that object's access token.
+     *
+     * @param <T> The type of the response.
+     */
+    private interface AuthorizedCall<T> {
+        T execute(SpotifyApi api) throws IOException, SpotifyWebApiException,
+                org.apache.hc.core5.http.ParseException;
+    }
+
+    /**
+     * Thrown when an artist could not be looked up, for example because
+     * Spotify was still throttling after the scheduler's retries. Unlike a
+     * search that finds no match, it says nothing about whether the artist
+     * has a profile.
+     */
+    public static class LookupFailedException extends RuntimeException {
+        LookupFailedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
 
     static {
         Dotenv dotenv = Dotenv.configure()
@@ -33,186 +59,193 @@ public class SpotifyAPIClient {
                 .load();
         CLIENT_ID = dotenv.get("CLIENT_ID");
         CLIENT_SECRET = dotenv.get("CLIENT_SECRET");
+        // Overridable, with the token endpoint below, so the client can be
+        // pointed at a local stub server
+        API_SCHEME = dotenv.get("SPOTIFY_API_SCHEME", "https");
+        API_HOST = dotenv.get("SPOTIFY_API_HOST", "api.spotify.com");
+        API_PORT = Integer.parseInt(dotenv.get("SPOTIFY_API_PORT", "443"));
+        TOKEN_URI = URI.create(dotenv.get("SPOTIFY_AUTH_SCHEME", "https") + "://"
+                + dotenv.get("SPOTIFY_AUTH_HOST", "accounts.spotify.com") + ":"
+                + Integer.parseInt(dotenv.get("SPOTIFY_AUTH_PORT", "443")) + "/api/token");
     }
 
     /**
      * Constructor for the SpotifyAPIClient class.
      * Initializes the SpotifyApi instance with client ID and client secret from the .env file.
-     * Retrieves a client token for authorization and sets it on the SpotifyApi object.
+     * Retrieves a client token for authorization, which is refreshed in the
+     * background before it expires.
      *
      * @throws RuntimeException If there's an error while retrieving client credentials.
      */
     public SpotifyAPIClient() {
-        spotifyApi = new SpotifyApi.Builder()
+        this(null);
+    }
+
+    /**
+     * Constructor for the SpotifyAPIClient class that consults the given cache
+     * before searching Spotify for an artist's profile.
+     *
+     * @param cache The artist cache to use, or null to always query Spotify.
+     */
+    public SpotifyAPIClient(ArtistCache cache) {
+        this(cache, SpotifyRequestScheduler.fromConfig());
+    }
+
+    /**
+     * Constructor for the SpotifyAPIClient class that consults the given cache
+     * and sends every request through the given scheduler.
+     *
+     * @param cache     The artist cache to use, or null to always query Spotify.
+     * @param scheduler The scheduler that paces and retries Spotify requests.
+     */
+    public SpotifyAPIClient(ArtistCache cache, SpotifyRequestScheduler scheduler) {
+        this.cache = cache;
+        this.scheduler = scheduler;
+        SpotifyApi spotifyApi = new SpotifyApi.Builder()
                 .setClientId(CLIENT_ID)
                 .setClientSecret(CLIENT_SECRET)
+                .setScheme(API_SCHEME)
+                .setHost(API_HOST)
+                .setPort(API_PORT)
                 .build();
 
-        // Retrieve a client token for authorization
-        ClientCredentialsRequest clientCredentialsRequest = spotifyApi.clientCredentials().build();
-        try {
-            ClientCredentials clientCredentials = clientCredentialsRequest.execute();
-
-            // Set the access token on the SpotifyApi object
-            spotifyApi.setAccessToken(clientCredentials.getAccessToken());
+        // Retrieve a client token for authorization and keep it refreshed
+        tokenManager = new SpotifyTokenManager(spotifyApi, scheduler, TOKEN_URI);
+    }
 
-        } catch (Exception e) {
-            System.out.println("An error occurred while retrieving client credentials: " + e.getMessage());
+    /**
+     * Runs a request through the scheduler. The request is built from the
+     * SpotifyApi object of the current access token, so the token that is
+     * sent is the one a rejection is blamed on; if Spotify rejects it, it is
+     * refreshed once and the request is rebuilt with the new token and retried.
+     * The time taken, including any waits for the rate limit, is recorded in
+     * the spotify.requests timer by operation and outcome: success,
+     * throttled (still 429 after the scheduler's retries), unauthorized or
+     * error.
+     *
+     * @param operation The name of the operation, for example "search".
+     * @param request   The request to run.
+     * @param <T>       The type of the response.
+     * @return The response of the request.
+     */
+    private <T> T call(String operation, AuthorizedCall<T> request)
+            throws IOException, SpotifyWebApiException, org.apache.hc.core5.http.ParseException {
+        long start = System.nanoTime();
+        String outcome = "error";
+        SpotifyApi api = tokenManager.getAuthorizedApi();
+        try {
+            T result;
+            try {
+                result = scheduler.execute(() -> request.execute(api));
+            } catch (UnauthorizedException e) {
+                tokenManager.refreshIfCurrent(api.getAccessToken());
+                SpotifyApi refreshedApi = tokenManager.getAuthorizedApi();
+                result = scheduler.execute(() -> request.execute(refreshedApi));
+            }
+            outcome = "success";
+            return result;
+        } catch (TooManyRequestsException e) {
+            outcome = "throttled";
+            throw e;
+        } catch (UnauthorizedException e) {
+            outcome = "unauthorized";
+            throw e;
+        } finally {
+            RunMetrics.record("spotify.requests", start, outcome, "operation", operation);
         }
     }
 
     /**
-     * Searches for an artist in the Spotify API using the provided artist name.
-     * Returns the ID of the first artist found with a matching name.
+     * Retrieves everything we store about an artist in as few round trips as
+     * possible. The search results already contain the full artist object
+     * (genres, popularity and external URLs), so only the search and a single
+     * top-tracks request are needed, and the track titles are taken from the
+     * same top-tracks response.
+     * If a cache was given, it is consulted first and updated with the result.
+     * Failed requests are not cached, so they are retried on the next run.
      *
      * @param artistName The name of the artist to search for.
-     * @return The ID of the artist, or null if no artist was found.
+     * @return The artist's profile, or null if no artist with a matching name
+     *         was found.
+     * @throws LookupFailedException If the search or the top-tracks request
+     *                               failed, including a 429 that outlasted the
+     *                               scheduler's retries.
      */
-    public String getArtistID(String artistName) {
-        try {
-            // Create a SearchItemRequest to search for the artist
-            SearchItemRequest searchRequest = spotifyApi.searchItem(artistName, "artist").build();
+    public ArtistProfile getArtistProfile(String artistName) {
+        if (cache != null) {
+            ArtistCache.Entry cached = cache.get(artistName);
+            if (cached != null) {
+                return cached.getProfile();
+            }
+        }
 
-            // Execute the search request and retrieve the search results
-            Paging<Artist> artistSearchResults = searchRequest.execute().getArtists();
+        Artist match = null;
+        try {
+            Paging<Artist> artistSearchResults = call("search", api -> api.searchItem(artistName, "artist").build().execute())
+                    .getArtists();
 
-            // Iterate over the search results to find the matching artist
             for (Artist artist : artistSearchResults.getItems()) {
-                // Check if the artist name matches exactly
                 if (artist.getName().equalsIgnoreCase(artistName)) {
-                    // Return the artist ID
-                    return artist.getId();
+                    match = artist;
+                    break;
                 }
             }
         } catch (Exception e) {
-            System.out.println("An error occurred while searching for the artist: " + e.getMessage());
+            throw new LookupFailedException("Could not search for " + artistName + ": " + e.getMessage(), e);
         }
 
-        // If no matching artist is found, return null
-        return null;
-    }
-
-    /**
-     * Retrieves the top tracks for a given artist from the Spotify API.
-     *
-     * @param artistID The ID of the artistto retrieve top tracks for.
-     * @return An array of track IDs for the artist's top tracks.
-     */
-    public String[] getArtistTopTracks(String artistID) {
-        try {
-            GetArtistsTopTracksRequest request = spotifyApi.getArtistsTopTracks(artistID, CountryCode.US).build();
-            Track[] tracks = request.execute();
-
-            String[] trackIDs = new String[tracks.length];
-            for (int i = 0; i < tracks.length; i++) {
-                trackIDs[i] = tracks[i].getId();
+        if (match == null) {
+            if (cache != null) {
+                cache.putNotFound(artistName);
             }
-
-            return trackIDs;
-
-        } catch (IOException | SpotifyWebApiException | org.apache.hc.core5.http.ParseException e) {
-            System.err.println("An error occurred while fetching the artist's top tracks: " + e.getMessage());
-            return new String[0]; // Return an empty array in case of error
+            return null;
         }
-    }
 
-    /**
-     * Retrieves the titles of a given set of tracks from the Spotify API.
-     *
-     * @param trackIDs An array of track IDs to retrieve titles for.
-     * @return An array of track titles corresponding to the provided track IDs.
-     */
-    public String[] getArtistTopTrackTitles(String[] trackIDs) {
+        String[] trackIDs;
+        String[] trackTitles;
         try {
-            GetSeveralTracksRequest request = spotifyApi.getSeveralTracks(trackIDs).build();
-            Track[] tracks = request.execute();
-
-            String[] trackTitles = new String[tracks.length];
+            String matchID = match.getId();
+            Track[] tracks = call("top_tracks", api -> api.getArtistsTopTracks(matchID, CountryCode.US).build().execute());
+            trackIDs = new String[tracks.length];
+            trackTitles = new String[tracks.length];
             for (int i = 0; i < tracks.length; i++) {
+                trackIDs[i] = tracks[i].getId();
                 trackTitles[i] = tracks[i].getName();
             }
-
-            return trackTitles;
         } catch (IOException | SpotifyWebApiException | org.apache.hc.core5.http.ParseException e) {
-            System.err.println("An error occurred while fetching track titles: " + e.getMessage());
-            return new String[0]; // Return an empty array in case of error
+            throw new LookupFailedException("Could not fetch the top tracks of " + artistName + ": "
+                    + e.getMessage(), e);
         }
-    }
-
-    /**
-     * Retrieves the top three genres associated with a given artist from the Spotify API.
-     *
-     * @param artistID The ID of the artist to retrieve genres for.
-     * @return An array of the top three genres associated with the artist.
-     */
-    public String[] getArtistGenres(String artistID) {
-        try {
-            // Create a GetArtistRequest with the artist ID
-            GetArtistRequest getArtistRequest = spotifyApi.getArtist(artistID).build();
-
-            // Execute the request and retrieve the artist object
-            Artist artist = getArtistRequest.execute();
 
-            // Get the genres associated with the artist
-            String[] genres = artist.getGenres();
+        String[] genres = match.getGenres() != null ? match.getGenres() : new String[0];
+        if (genres.length > 3) {
+            genres = Arrays.copyOfRange(genres, 0, 3);
+        }
+        String spotifyLink = match.getExternalUrls() != null ? match.getExternalUrls().get("spotify") : null;
 
-            // Return the top three genres
-            if (genres.length > 3) {
-                return Arrays.copyOfRange(genres, 0, 3);
-            } else {
-                return genres;
-            }
-        } catch (Exception e) {
-            System.err.println("An error occurred while fetching the artist's genres: " + e.getMessage());
-            return new String[0]; // Return an empty array in case of error
+        ArtistProfile profile = new ArtistProfile(match.getId(), match.getName(), genres, match.getPopularity(),
+                spotifyLink, trackIDs, trackTitles);
+        if (cache != null) {
+            cache.put(artistName, profile);
         }
+        return profile;
     }
 
     /**
-     * Retrieves the popularity score of a given artist from the Spotify API.
+     * Returns the scheduler that all requests of this client go through.
      *
-     * @param artistID The ID of the artist to retrieve the popularity score for.
-     * @return The artist's popularity score, or -1 if an error occurred.
+     * @return the request scheduler
      */
-    public int getPopularityScore(String artistID) {
-        try {
-            // Create a GetArtistRequest with the artist ID
-        GetArtistRequest getArtistRequest = spotifyApi.getArtist(artistID).build();
-
-        // Execute the request and retrieve the artist object
-        Artist artist = getArtistRequest.execute();
-
-        int popularityScore = artist.getPopularity();
-        return popularityScore;
-
-        } catch (Exception e) {
-            System.err.println("An error occurred while fetching the popularity score: " + e.getMessage());
-            return -1; // Return -1 in case of error
-        }
+    public SpotifyRequestScheduler getScheduler() {
+        return scheduler;
     }
 
     /**
-     * Retrieves the Spotify link for a given artist from the Spotify API.
-     *
-     * @param artistID The ID of the artist to retrieve the Spotify link for.
-     * @return The artist's Spotify link, or null if an error occurred.
+     * Stops the background token refresh. The client can no longer be used
+     * once its token expires.
      */
-    public String getExternalUrl(String artistID) {
-        try {
-            // Create a GetArtistRequest with the artist ID
-            GetArtistRequest getArtistRequest = spotifyApi.getArtist(artistID).build();
-
-            // Execute the request and retrieve the artist object
-            Artist artist = getArtistRequest.execute();
-
-            String spotifyLink = artist.getExternalUrls().get("spotify");
-
-            return spotifyLink;
-
-        } catch (Exception e) {
-            System.err.println("An error occurred while fetching the artist's external URLs: " + e.getMessage());
-            return null; // Return null in case of error
-        }
+    public void close() {
+        tokenManager.shutdown();
     }
 
 }
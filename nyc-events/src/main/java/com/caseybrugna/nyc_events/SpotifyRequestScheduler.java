@@ -0,0 +1,285 @@
+package com.caseybrugna.nyc_events;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.wrapper.spotify.exceptions.SpotifyWebApiException;
+import com.wrapper.spotify.exceptions.detailed.TooManyRequestsException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+
+/**
+ * A scheduler that every Spotify API request goes through.
+ * Requests are paced by a token bucket, and the number of requests in flight
+ * is adapted to observed throttling: it grows by one per window of successful
+ * requests and is halved whenever Spotify answers with 429 Too Many Requests
+ * (additive increase, multiplicative decrease). Throttled requests wait for the
+ * Retry-After period and are then retried, so they are not lost.
+ */
+public class SpotifyRequestScheduler {
+    private static final double DEFAULT_REQUESTS_PER_SECOND = 10;
+    private static final int DEFAULT_MAX_CONCURRENCY = 8;
+    private static final int DEFAULT_MAX_RETRIES = 5;
+    private static final long DEFAULT_BACKOFF_MILLIS = 1000;
+
+    /**
+     * A single Spotify request.
+     *
+     * @param <T> The type of the response.
+     */
+    public interface SpotifyCall<T> {
+        T execute() throws IOException, SpotifyWebApiException, org.apache.hc.core5.http.ParseException;
+    }
+
+    private final double tokensPerNano;
+    private final double bucketCapacity;
+    private final int maxConcurrency;
+    private final int maxRetries;
+
+    private final Object bucketLock = new Object();
+    private double tokens;
+    private long lastRefill;
+
+    private final ReentrantLock concurrencyLock = new ReentrantLock();
+    private final Condition slotFreed = concurrencyLock.newCondition();
+    private double concurrencyLimit;
+    private int inFlight;
+    private long lastDecrease;
+
+    private volatile long pausedUntil;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+
+    private final Counter attemptCounter = RunMetrics.registry().counter("spotify.attempts");
+    private final Counter throttledCounter = RunMetrics.registry().counter("spotify.throttled");
+    private final Counter retryCounter = RunMetrics.registry().counter("spotify.retries");
+
+    /**
+     * Constructor for the SpotifyRequestScheduler class.
+     *
+     * @param requestsPerSecond The sustained request rate to allow.
+     * @param maxConcurrency    The maximum number of requests in flight.
+     * @param maxRetries        How many times a throttled request is retried.
+     */
+    public SpotifyRequestScheduler(double requestsPerSecond, int maxConcurrency, int maxRetries) {
+        this.tokensPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.bucketCapacity = Math.max(1, requestsPerSecond);
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.tokens = bucketCapacity;
+        this.lastRefill = System.nanoTime();
+        this.concurrencyLimit = Math.max(1, this.maxConcurrency / 2);
+        this.lastDecrease = System.nanoTime();
+        this.pausedUntil = System.nanoTime();
+        Gauge.builder("spotify.concurrency.limit", this, SpotifyRequestScheduler::getConcurrencyLimit)
+                .register(RunMetrics.registry());
+    }
+
+    /**
+     * Creates a SpotifyRequestScheduler configured from the .env file.
+     * SPOTIFY_REQUESTS_PER_SECOND, SPOTIFY_MAX_CONCURRENCY and
+     * SPOTIFY_MAX_RETRIES override the defaults.
+     *
+     * @return The configured scheduler.
+     */
+    public static SpotifyRequestScheduler fromConfig() {
+        Dotenv dotenv = Dotenv.configure()
+                .directory("src/main/resources")
+                .load();
+        double rate = DEFAULT_REQUESTS_PER_SECOND;
+        int concurrency = DEFAULT_MAX_CONCURRENCY;
+        int maxRetries = DEFAULT_MAX_RETRIES;
+        try {
+            rate = Double.parseDouble(dotenv.get("SPOTIFY_REQUESTS_PER_SECOND", String.valueOf(rate)).trim());
+            concurrency = Integer.parseInt(dotenv.get("SPOTIFY_MAX_CONCURRENCY", String.valueOf(concurrency)).trim());
+            maxRetries = Integer.parseInt(dotenv.get("SPOTIFY_MAX_RETRIES", String.valueOf(maxRetries)).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid Spotify scheduler setting, using defaults: " + e.getMessage());
+        }
+        return new SpotifyRequestScheduler(rate, concurrency, maxRetries);
+    }
+
+    /**
+     * Runs a Spotify request once a concurrency slot and a rate-limit token are
+     * available. If Spotify throttles the request, it is retried after the
+     * Retry-After period until it succeeds or the retries are used up.
+     *
+     * @param call The request to run.
+     * @param <T>  The type of the response.
+     * @return The response of the request.
+     * @throws TooManyRequestsException If the request is still throttled after
+     *                                  all retries.
+     * @throws InterruptedIOException   If the thread is interrupted while
+     *                                  waiting.
+     */
+    public <T> T execute(SpotifyCall<T> call)
+            throws IOException, SpotifyWebApiException, org.apache.hc.core5.http.ParseException {
+        for (int attempt = 0;; attempt++) {
+            try {
+                acquireSlot();
+            } catch (InterruptedException e) {
+                throw interrupted(e);
+            }
+            try {
+                awaitPause();
+                acquireToken();
+                requests.incrementAndGet();
+                attemptCounter.increment();
+                T result = call.execute();
+                onSuccess();
+                return result;
+            } catch (TooManyRequestsException e) {
+                throttled.incrementAndGet();
+                throttledCounter.increment();
+                onThrottled(e.getRetryAfter(), attempt);
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                retries.incrementAndGet();
+                retryCounter.increment();
+            } catch (InterruptedException e) {
+                throw interrupted(e);
+            } finally {
+                releaseSlot();
+            }
+        }
+    }
+
+    private static InterruptedIOException interrupted(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        InterruptedIOException exception = new InterruptedIOException("Interrupted while waiting to call Spotify");
+        exception.initCause(e);
+        return exception;
+    }
+
+    private void acquireSlot() throws InterruptedException {
+        concurrencyLock.lock();
+        try {
+            while (inFlight >= (int) concurrencyLimit) {
+                slotFreed.await();
+            }
+            inFlight++;
+        } finally {
+            concurrencyLock.unlock();
+        }
+    }
+
+    private void releaseSlot() {
+        concurrencyLock.lock();
+        try {
+            inFlight--;
+            slotFreed.signalAll();
+        } finally {
+            concurrencyLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until any pause imposed by a Retry-After header has passed.
+     */
+    private void awaitPause() throws InterruptedException {
+        long wait;
+        while ((wait = pausedUntil - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Takes one token from the bucket, waiting for it to refill if it is empty.
+     */
+    private void acquireToken() throws InterruptedException {
+        while (true) {
+            long wait;
+            synchronized (bucketLock) {
+                long now = System.nanoTime();
+                tokens = Math.min(bucketCapacity, tokens + (now - lastRefill) * tokensPerNano);
+                lastRefill = now;
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+                wait = (long) Math.ceil((1 - tokens) / tokensPerNano);
+            }
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Raises the concurrency limit by roughly one per limit's worth of
+     * successful requests.
+     */
+    private void onSuccess() {
+        concurrencyLock.lock();
+        try {
+            concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1.0 / concurrencyLimit);
+            slotFreed.signalAll();
+        } finally {
+            concurrencyLock.unlock();
+        }
+    }
+
+    /**
+     * Pauses all requests for the Retry-After period (or an exponential backoff
+     * if Spotify did not send one) and halves the concurrency limit. Several
+     * requests throttled within the same pause only halve the limit once.
+     * Each pause is recorded in the spotify.throttle.pause timer, next to the
+     * spotify.throttled counter and the spotify.concurrency.limit gauge.
+     *
+     * @param retryAfterSeconds The Retry-After value sent by Spotify.
+     * @param attempt           The number of attempts already made.
+     */
+    private void onThrottled(int retryAfterSeconds, int attempt) {
+        long now = System.nanoTime();
+        long pause = retryAfterSeconds > 0
+                ? TimeUnit.SECONDS.toNanos(retryAfterSeconds)
+                : TimeUnit.MILLISECONDS.toNanos(DEFAULT_BACKOFF_MILLIS << Math.min(attempt, 6));
+
+        synchronized (this) {
+            if (now + pause - pausedUntil > 0) {
+                pausedUntil = now + pause;
+            }
+        }
+
+        concurrencyLock.lock();
+        try {
+            if (now - lastDecrease > 0) {
+                concurrencyLimit = Math.max(1, concurrencyLimit / 2);
+                lastDecrease = now + pause;
+            }
+        } finally {
+            concurrencyLock.unlock();
+        }
+        RunMetrics.timer("spotify.throttle.pause").record(pause, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the current number of requests allowed in flight.
+     *
+     * @return the concurrency limit
+     */
+    public int getConcurrencyLimit() {
+        concurrencyLock.lock();
+        try {
+            return (int) concurrencyLimit;
+        } finally {
+            concurrencyLock.unlock();
+        }
+    }
+
+    /**
+     * Prints how many requests were sent, throttled and retried.
+     */
+    public void printStats() {
+        System.out.printf("Spotify requests: %d sent, %d throttled, %d retried (concurrency limit %d)%n",
+                requests.get(), throttled.get(), retries.get(), getConcurrencyLimit());
+    }
+}
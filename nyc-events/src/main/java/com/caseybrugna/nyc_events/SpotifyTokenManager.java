@@ -0,0 +1,274 @@
+package com.caseybrugna.nyc_events;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.wrapper.spotify.SpotifyApi;
+import com.wrapper.spotify.exceptions.SpotifyWebApiException;
+import com.wrapper.spotify.exceptions.detailed.TooManyRequestsException;
+
+/**
+ * Manages the client-credentials access token used by SpotifyAPIClient.
+ * The token is refreshed in the background shortly before it expires, and
+ * callers read it without taking a lock. When a request is rejected with 401
+ * Unauthorized, only the first caller holding the stale token triggers a
+ * refresh; everyone else reuses the new token.
+ * Only one refresh runs at a time. It is published as an in-flight future
+ * that callers arriving during it wait on instead of starting another, so a
+ * slow or failing token endpoint is asked once and a failure is reported
+ * once. No lock is held while the token is requested.
+ * Each token is published together with a SpotifyApi object that carries it,
+ * so a request built from that object is always sent with the token the
+ * caller read, even if the token is refreshed in the meantime.
+ * Tokens are requested from the token endpoint given to the constructor
+ * rather than through the Spotify client library, which always sends them to
+ * accounts.spotify.com, so that a run can be pointed at a local stub server.
+ */
+public class SpotifyTokenManager {
+    private static final long REFRESH_MARGIN_SECONDS = 300;
+    private static final long RETRY_DELAY_SECONDS = 30;
+    private static final Duration TIMEOUT = Duration.ofSeconds(20);
+
+    private final SpotifyApi spotifyApi;
+    private final SpotifyRequestScheduler scheduler;
+    private final URI tokenUri;
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+    private final ScheduledExecutorService refresher;
+    private final Object refreshLock = new Object();
+
+    // Guarded by refreshLock, as is nextRefresh; null when no refresh is running
+    private CompletableFuture<Void> inFlight;
+
+    // Built for each token, so that the token and the requests sent with it
+    // are read from the same object
+    private volatile SpotifyApi authorizedApi;
+    private volatile long expiresAt;
+    private ScheduledFuture<?> nextRefresh;
+
+    /**
+     * Constructor for the SpotifyTokenManager class.
+     * Fetches the first token straight away.
+     *
+     * @param spotifyApi The SpotifyApi object the token is set on, which also
+     *                   holds the client ID and secret.
+     * @param scheduler  The scheduler that token requests go through.
+     * @param tokenUri   The URI of the token endpoint, for example
+     *                   https://accounts.spotify.com:443/api/token.
+     */
+    public SpotifyTokenManager(SpotifyApi spotifyApi, SpotifyRequestScheduler scheduler, URI tokenUri) {
+        this.spotifyApi = spotifyApi;
+        this.scheduler = scheduler;
+        this.tokenUri = tokenUri;
+        this.authorizedApi = spotifyApi;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "spotify-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresh();
+    }
+
+    /**
+     * Returns the current access token. This only reads a volatile field, so
+     * it is safe to call from many threads at once.
+     *
+     * @return the access token, or null if no token could be retrieved
+     */
+    public String getAccessToken() {
+        return authorizedApi.getAccessToken();
+    }
+
+    /**
+     * Returns a SpotifyApi object that sends its requests with the current
+     * access token. It is replaced, not changed, when the token is refreshed.
+     *
+     * @return the SpotifyApi object for the current token; before the first
+     *         token has been retrieved, it has no token
+     */
+    public SpotifyApi getAuthorizedApi() {
+        return authorizedApi;
+    }
+
+    /**
+     * Returns whether the current token has expired.
+     *
+     * @return true if there is no valid token
+     */
+    public boolean isExpired() {
+        return getAccessToken() == null || System.currentTimeMillis() >= expiresAt;
+    }
+
+    /**
+     * Refreshes the token after a request using it was rejected. If the token
+     * has already been replaced by another thread, nothing is done; if a
+     * refresh is already running, this waits for it instead of starting
+     * another.
+     *
+     * @param staleToken The token the rejected request was sent with.
+     */
+    public void refreshIfCurrent(String staleToken) {
+        refresh(staleToken).join();
+    }
+
+    /**
+     * Refreshes the token from the constructor and the background refresh.
+     */
+    private void refresh() {
+        refresh(null);
+    }
+
+    /**
+     * Starts a refresh unless one is already running, in which case that one
+     * is returned. When staleToken is given and is no longer the current
+     * token, the token has been refreshed since and nothing is started. The
+     * refresh runs on the calling thread, so the returned future is already
+     * complete for the caller that started it.
+     *
+     * @param staleToken The token to replace, or null to refresh regardless.
+     * @return The refresh to wait for.
+     */
+    private CompletableFuture<Void> refresh(String staleToken) {
+        CompletableFuture<Void> refresh;
+        synchronized (refreshLock) {
+            if (inFlight != null) {
+                return inFlight;
+            }
+            if (staleToken != null && !staleToken.equals(getAccessToken())) {
+                return CompletableFuture.completedFuture(null);
+            }
+            refresh = new CompletableFuture<>();
+            inFlight = refresh;
+        }
+
+        try {
+            fetchToken();
+        } finally {
+            // The new token is published before the refresh is cleared, so a
+            // caller that finds no refresh running also sees its token
+            synchronized (refreshLock) {
+                inFlight = null;
+            }
+            refresh.complete(null);
+        }
+        return refresh;
+    }
+
+    /**
+     * Fetches a new token, sets it on the SpotifyApi object and schedules the
+     * next refresh ahead of its expiry. If the request fails, it is retried
+     * after a short delay. Once the manager has been shut down, a token can
+     * still be fetched but no further refresh is scheduled.
+     */
+    private void fetchToken() {
+        long delaySeconds;
+        try {
+            JsonObject credentials = scheduler.execute(this::requestToken);
+            String token = credentials.get("access_token").getAsString();
+            long lifetimeSeconds = credentials.get("expires_in").getAsLong();
+
+            spotifyApi.setAccessToken(token);
+            expiresAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(lifetimeSeconds);
+            authorizedApi = new SpotifyApi.Builder()
+                    .setHttpManager(spotifyApi.getHttpManager())
+                    .setScheme(spotifyApi.getScheme())
+                    .setHost(spotifyApi.getHost())
+                    .setPort(spotifyApi.getPort())
+                    .setAccessToken(token)
+                    .build();
+
+            delaySeconds = Math.max(RETRY_DELAY_SECONDS, lifetimeSeconds - REFRESH_MARGIN_SECONDS);
+        } catch (Exception e) {
+            System.out.println("An error occurred while retrieving client credentials: " + e.getMessage());
+            delaySeconds = RETRY_DELAY_SECONDS;
+        }
+
+        synchronized (refreshLock) {
+            if (nextRefresh != null) {
+                nextRefresh.cancel(false);
+            }
+            try {
+                nextRefresh = refresher.schedule(() -> refresh(), delaySeconds, TimeUnit.SECONDS);
+            } catch (RejectedExecutionException e) {
+                // Shut down; the token is no longer kept fresh
+                nextRefresh = null;
+            }
+        }
+    }
+
+    /**
+     * Requests a token with the client-credentials flow.
+     *
+     * @return The token response, with access_token and expires_in.
+     * @throws TooManyRequestsException If the endpoint answers with 429, so
+     *                                  that the scheduler retries it.
+     * @throws SpotifyWebApiException   If the endpoint answers with any other
+     *                                  error or an unreadable response.
+     */
+    private JsonObject requestToken() throws IOException, SpotifyWebApiException {
+        String credentials = spotifyApi.getClientId() + ":" + spotifyApi.getClientSecret();
+        HttpRequest request = HttpRequest.newBuilder(tokenUri)
+                .timeout(TIMEOUT)
+                .header("Authorization", "Basic "
+                        + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "grant_type=" + URLEncoder.encode("client_credentials", StandardCharsets.UTF_8)))
+                .build();
+
+        HttpResponse<String> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException exception = new InterruptedIOException("Interrupted while requesting a token");
+            exception.initCause(e);
+            throw exception;
+        }
+        if (response.statusCode() == 429) {
+            int retryAfter = response.headers().firstValue("Retry-After").map(value -> {
+                try {
+                    return Integer.parseInt(value.trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }).orElse(0);
+            throw new TooManyRequestsException("Token request throttled", retryAfter);
+        }
+        if (response.statusCode() != 200) {
+            throw new SpotifyWebApiException("Token request failed: HTTP " + response.statusCode());
+        }
+        try {
+            JsonObject body = JsonParser.parseString(response.body()).getAsJsonObject();
+            if (!body.has("access_token") || !body.has("expires_in")) {
+                throw new SpotifyWebApiException("Token response has no access_token or expires_in");
+            }
+            return body;
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new SpotifyWebApiException("Unreadable token response: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the background refresh.
+     */
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+}
@@ -0,0 +1,151 @@
+package com.caseybrugna.nyc_events;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An append-only dictionary that gives each distinct string a small integer
+ * code, so that values repeated across many events (venues, prices, genres,
+ * artist names and IDs) are stored once and referenced by code.
+ * Codes are never reused or removed, so a dictionary only grows with the
+ * number of distinct values seen, not with the number of events. To keep a
+ * long-running server from holding every value it has ever loaded, each
+ * EventStore snapshot gets a dictionary of its own: new records are encoded
+ * with the current one, which is replaced by an empty one whenever a snapshot
+ * is swapped in, and a dictionary is released with the last record using it.
+ * Lookups by code are lock-free; adding a new value takes a lock.
+ */
+final class StringDictionary {
+    private static volatile StringDictionary current = new StringDictionary();
+
+    /**
+     * The code of a null value.
+     */
+    static final int NULL = -1;
+
+    private static final int[] NO_CODES = new int[0];
+
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    // Written under the lock and republished after every append, so a reader
+    // that was handed a code also sees its value
+    private volatile String[] values = new String[1024];
+    private int size;
+
+    /**
+     * Returns the dictionary that new EventRecords are encoded with.
+     *
+     * @return the current dictionary
+     */
+    static StringDictionary current() {
+        return current;
+    }
+
+    /**
+     * Starts an empty dictionary for the EventRecords created from now on.
+     * Records already created keep the dictionary they were encoded with.
+     */
+    static void startNew() {
+        current = new StringDictionary();
+    }
+
+    /**
+     * Returns the code of a value, adding it to the dictionary if it is new.
+     *
+     * @param value the value, or null
+     * @return the code, or NULL if the value is null
+     */
+    int encode(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[size] = value;
+            values = current;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Returns the codes of a list of values.
+     *
+     * @param values the values
+     * @return their codes, in the same order
+     */
+    int[] encode(List<String> values) {
+        if (values.isEmpty()) {
+            return NO_CODES;
+        }
+        int[] encoded = new int[values.size()];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = encode(values.get(i));
+        }
+        return encoded;
+    }
+
+    /**
+     * Returns the value of a code.
+     *
+     * @param code a code returned by encode, or NULL
+     * @return the value, or null for NULL
+     */
+    String decode(int code) {
+        return code == NULL ? null : values[code];
+    }
+
+    /**
+     * Returns an unmodifiable view of the values of a list of codes. The view
+     * decodes on access instead of copying.
+     *
+     * @param codes codes returned by encode; must not be modified
+     * @return the values, in the same order
+     */
+    List<String> decode(int[] codes) {
+        return codes.length == 0 ? Collections.emptyList() : new DecodedList(this, codes);
+    }
+
+    /**
+     * Returns the number of distinct values in the dictionary.
+     *
+     * @return the number of values
+     */
+    int size() {
+        return codes.size();
+    }
+
+    private static final class DecodedList extends AbstractList<String> implements RandomAccess {
+        private final StringDictionary dictionary;
+        private final int[] codes;
+
+        DecodedList(StringDictionary dictionary, int[] codes) {
+            this.dictionary = dictionary;
+            this.codes = codes;
+        }
+
+        @Override
+        public String get(int index) {
+            return dictionary.decode(codes[index]);
+        }
+
+        @Override
+        public int size() {
+            return codes.length;
+        }
+    }
+}
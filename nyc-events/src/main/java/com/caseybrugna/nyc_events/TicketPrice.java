@@ -0,0 +1,125 @@
+package com.caseybrugna.nyc_events;
+
+import java.util.Locale;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The price of an event parsed from the text shown on Dice, such as "$25.00",
+ * "USD 25.00", "Free" or "Sold out", into an amount in minor units (cents) and
+ * a currency, so that prices can be stored in numeric columns and compared in
+ * range queries.
+ */
+public final class TicketPrice {
+    private static final TicketPrice UNKNOWN = new TicketPrice(null, null, false, false);
+    private static final String DEFAULT_CURRENCY = "USD";
+
+    // An optional currency symbol or code, then an amount such as 25, 25.5,
+    // 25.00 or 1,250.00; the first amount is used for ranges like "$20 - $40"
+    private static final Pattern AMOUNT = Pattern.compile(
+            "([$\u00a3\u20ac]|\\b[A-Z]{3}\\b)?\\s*(\\d{1,3}(?:,\\d{3})+|\\d+)(?:\\.(\\d{1,2}))?");
+
+    private final Integer amountMinor;
+    private final String currency;
+    private final boolean free;
+    private final boolean soldOut;
+
+    private TicketPrice(Integer amountMinor, String currency, boolean free, boolean soldOut) {
+        this.amountMinor = amountMinor;
+        this.currency = currency;
+        this.free = free;
+        this.soldOut = soldOut;
+    }
+
+    /**
+     * Parses the price text of an event. The first amount with a currency
+     * symbol or code is the price, so "Free before 11pm, $20 after" costs $20.
+     * Without one, text that says "free" is free, since its numbers are more
+     * likely times or ages than prices; otherwise the first bare amount is
+     * used. Text without an amount that is not free gives an unknown price.
+     *
+     * @param text the price as shown on Dice, or null
+     * @return the parsed price
+     */
+    public static TicketPrice parse(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return UNKNOWN;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        boolean soldOut = lower.contains("sold out");
+
+        Matcher matcher = AMOUNT.matcher(text);
+        MatchResult amount = null;
+        while (matcher.find()) {
+            if (matcher.group(1) != null) {
+                amount = matcher.toMatchResult();
+                break;
+            } else if (amount == null) {
+                amount = matcher.toMatchResult();
+            }
+        }
+        if ((amount == null || amount.group(1) == null) && lower.contains("free")) {
+            return new TicketPrice(0, null, true, soldOut);
+        } else if (amount == null) {
+            return soldOut ? new TicketPrice(null, null, false, true) : UNKNOWN;
+        }
+
+        long major = Long.parseLong(amount.group(2).replace(",", ""));
+        String fraction = amount.group(3);
+        int minor = fraction == null ? 0 : Integer.parseInt(fraction.length() == 1 ? fraction + "0" : fraction);
+        long amountMinor = major * 100 + minor;
+        if (amountMinor > Integer.MAX_VALUE) {
+            return UNKNOWN;
+        }
+        return new TicketPrice((int) amountMinor, toCurrency(amount.group(1)), amountMinor == 0, soldOut);
+    }
+
+    private static String toCurrency(String symbol) {
+        if (symbol == null || symbol.equals("$")) {
+            return DEFAULT_CURRENCY;
+        } else if (symbol.equals("\u00a3")) {
+            return "GBP";
+        } else if (symbol.equals("\u20ac")) {
+            return "EUR";
+        }
+        return symbol;
+    }
+
+    /**
+     * Returns the price in minor units, for example 2500 for $25.00.
+     *
+     * @return the amount, 0 if the event is free, or null if it is unknown
+     */
+    public Integer getAmountMinor() {
+        return amountMinor;
+    }
+
+    /**
+     * Returns the ISO 4217 code of the price's currency.
+     *
+     * @return the currency, or null if the event is free or the price is
+     *         unknown
+     */
+    public String getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Returns whether the event is free.
+     *
+     * @return true if the event is free
+     */
+    public boolean isFree() {
+        return free;
+    }
+
+    /**
+     * Returns whether the event was shown as sold out.
+     *
+     * @return true if the event is sold out
+     */
+    public boolean isSoldOut() {
+        return soldOut;
+    }
+}
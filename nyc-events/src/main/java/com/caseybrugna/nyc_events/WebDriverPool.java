@@ -0,0 +1,185 @@
+package com.caseybrugna.nyc_events;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+import io.micrometer.core.instrument.DistributionSummary;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A bounded pool of reusable browser sessions for scraping browse pages.
+ * Sessions are started only when they are first needed, and at most
+ * DICE_BROWSER_SESSIONS (from the .env file) are open at once; further pages
+ * wait for a session to be returned. A returned session is reset before it is
+ * reused: extra windows are closed, its cookies and storage are cleared and it
+ * is pointed at a blank page, so one page's state does not leak into the next.
+ * A session that fails is quit and replaced by a new one when next needed.
+ * The browser's RSS is sampled after every page and its peak is printed when
+ * the pool is closed; see ChromeSessions for how sessions are started.
+ */
+public class WebDriverPool implements AutoCloseable {
+    private static final int DEFAULT_SESSIONS = 2;
+
+    private final ChromeSessions chrome;
+    private final Semaphore permits;
+    private final BlockingQueue<WebDriver> idle = new LinkedBlockingQueue<>();
+    private final Set<WebDriver> sessions = ConcurrentHashMap.newKeySet();
+    private final DistributionSummary rss;
+    private final AtomicLong peakRss = new AtomicLong(-1);
+
+    /**
+     * Constructor for the WebDriverPool class.
+     *
+     * @param maxSessions The maximum number of sessions open at once.
+     * @param chrome      Starts and stops the sessions.
+     */
+    public WebDriverPool(int maxSessions, ChromeSessions chrome) {
+        this.permits = new Semaphore(Math.max(1, maxSessions), true);
+        this.chrome = chrome;
+        this.rss = DistributionSummary.builder("dice.browser.rss")
+                .baseUnit("bytes")
+                .tag("profile", chrome.getProfile())
+                .register(RunMetrics.registry());
+    }
+
+    /**
+     * Creates a WebDriverPool of Chrome sessions configured from the .env file.
+     * DICE_BROWSER_SESSIONS overrides the default number of sessions.
+     *
+     * @return The configured pool.
+     */
+    public static WebDriverPool fromConfig() {
+        Dotenv dotenv = Dotenv.configure()
+                .directory("src/main/resources")
+                .load();
+        int sessions = DEFAULT_SESSIONS;
+        try {
+            sessions = Integer.parseInt(dotenv.get("DICE_BROWSER_SESSIONS", String.valueOf(sessions)).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid DICE_BROWSER_SESSIONS value, using " + DEFAULT_SESSIONS + ": " + e.getMessage());
+        }
+        return new WebDriverPool(sessions, ChromeSessions.fromConfig(sessions));
+    }
+
+    /**
+     * Returns the name of the browser profile the sessions use.
+     *
+     * @return "lean" or "full"
+     */
+    public String getProfile() {
+        return chrome.getProfile();
+    }
+
+    /**
+     * Runs a piece of work with a session from the pool, waiting for one to
+     * be free if all of them are in use. The session is reset and returned to
+     * the pool afterwards, or quit if the work failed.
+     *
+     * @param work The work to do with the session.
+     * @param <T>  The type of the result.
+     * @return The result of the work.
+     * @throws IllegalStateException If the thread is interrupted while waiting.
+     */
+    public <T> T withDriver(Function<WebDriver, T> work) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a browser session", e);
+        }
+        WebDriver driver = null;
+        boolean healthy = false;
+        try {
+            driver = idle.poll();
+            if (driver == null) {
+                driver = chrome.start();
+                sessions.add(driver);
+                RunMetrics.registry().counter("dice.browser.started").increment();
+            }
+            T result = work.apply(driver);
+            healthy = true;
+            sampleRss();
+            return result;
+        } finally {
+            if (driver != null) {
+                if (healthy && reset(driver)) {
+                    idle.add(driver);
+                } else {
+                    discard(driver);
+                }
+            }
+            permits.release();
+        }
+    }
+
+    /**
+     * Clears the state a page has left in a session.
+     *
+     * @param driver The session to reset.
+     * @return true if the session can be reused.
+     */
+    private static boolean reset(WebDriver driver) {
+        try {
+            List<String> windows = new ArrayList<>(driver.getWindowHandles());
+            for (String window : windows.subList(1, windows.size())) {
+                driver.switchTo().window(window).close();
+            }
+            driver.switchTo().window(windows.get(0));
+            driver.manage().deleteAllCookies();
+            try {
+                ((JavascriptExecutor) driver).executeScript(
+                        "window.localStorage.clear(); window.sessionStorage.clear();");
+            } catch (WebDriverException e) {
+                // Pages that do not allow access to their storage have none to clear
+            }
+            driver.get("about:blank");
+            return true;
+        } catch (WebDriverException e) {
+            System.err.println("Could not reset a browser session, starting a new one: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void sampleRss() {
+        long bytes = chrome.browserRssBytes();
+        if (bytes >= 0) {
+            rss.record(bytes);
+            peakRss.accumulateAndGet(bytes, Math::max);
+        }
+    }
+
+    private void discard(WebDriver driver) {
+        sessions.remove(driver);
+        RunMetrics.registry().counter("dice.browser.discarded").increment();
+        chrome.stop(driver, true);
+    }
+
+    /**
+     * Ends every session in the pool, leaving warm Chromes running, and prints
+     * the peak RSS of the browser if any page was loaded.
+     */
+    @Override
+    public void close() {
+        idle.clear();
+        for (WebDriver driver : sessions) {
+            chrome.stop(driver, false);
+        }
+        sessions.clear();
+        if (peakRss.get() >= 0) {
+            System.out.printf("Browser RSS (%s profile): %d MiB peak over %d pages%n", chrome.getProfile(),
+                    peakRss.get() >> 20, rss.count());
+        }
+    }
+}
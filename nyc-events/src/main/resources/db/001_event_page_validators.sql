@@ -0,0 +1,5 @@
+-- Stores the HTTP validators of each event page so incremental scrapes can
+-- send conditional GETs (If-None-Match / If-Modified-Since).
+ALTER TABLE Events
+    ADD COLUMN ETag VARCHAR(255) NULL,
+    ADD COLUMN LastModified VARCHAR(64) NULL;
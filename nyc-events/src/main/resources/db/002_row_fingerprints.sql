@@ -0,0 +1,7 @@
+-- Stores a content fingerprint with each event and artist so unchanged rows
+-- can be skipped instead of rewritten on every run.
+ALTER TABLE Events
+    ADD COLUMN Fingerprint BIGINT NULL;
+
+ALTER TABLE Artists
+    ADD COLUMN Fingerprint BIGINT NULL;
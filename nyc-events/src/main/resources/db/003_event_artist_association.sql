@@ -0,0 +1,25 @@
+-- Replaces the fixed EventArtists(EventID, ArtistID1..3) table with a
+-- many-to-many association that keeps every artist of a lineup and its
+-- position. The primary key serves lookups by event in lineup order, and
+-- the secondary index serves lookups by artist.
+CREATE TABLE EventArtist (
+    EventID VARCHAR(64) NOT NULL,
+    ArtistID VARCHAR(64) NOT NULL,
+    Position SMALLINT UNSIGNED NOT NULL,
+    PRIMARY KEY (EventID, Position),
+    INDEX idx_event_artist_artist (ArtistID, EventID),
+    CONSTRAINT fk_event_artist_event FOREIGN KEY (EventID)
+        REFERENCES Events (EventID) ON DELETE CASCADE
+);
+
+INSERT IGNORE INTO EventArtist (EventID, ArtistID, Position)
+SELECT ea.EventID, ea.ArtistID1, 1 FROM EventArtists ea
+    JOIN Events e ON e.EventID = ea.EventID WHERE ea.ArtistID1 IS NOT NULL
+UNION ALL
+SELECT ea.EventID, ea.ArtistID2, 2 FROM EventArtists ea
+    JOIN Events e ON e.EventID = ea.EventID WHERE ea.ArtistID2 IS NOT NULL
+UNION ALL
+SELECT ea.EventID, ea.ArtistID3, 3 FROM EventArtists ea
+    JOIN Events e ON e.EventID = ea.EventID WHERE ea.ArtistID3 IS NOT NULL;
+
+DROP TABLE EventArtists;
@@ -0,0 +1,11 @@
+-- Supports the read API: keyset pagination over upcoming events in
+-- (Date, EventID) order, and a log of finished scrape runs that API nodes
+-- watch to know when to drop their cached responses.
+ALTER TABLE Events
+    ADD INDEX idx_events_date_id (Date, EventID);
+
+CREATE TABLE ScrapeRuns (
+    RunID BIGINT UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    FinishedAt DATETIME NOT NULL,
+    EventCount INT NOT NULL
+);
@@ -0,0 +1,14 @@
+-- First step of replacing the VARCHAR EventID, a 32-bit String.hashCode in
+-- hex, with EventKey, a 64-bit hash of the same fields stored as BINARY(8).
+-- Adds the new columns next to the old ones. Then run
+--   java ... com.caseybrugna.nyc_events.Main migrate-event-keys
+-- to fill them in for the stored events, and 006_event_keys_primary.sql to
+-- make EventKey the key. The scraper already writes EventKey only, so it
+-- refuses to run until both steps are done. The unique index makes the backfill fail loudly
+-- rather than merge two events if their keys ever collide.
+ALTER TABLE Events
+    ADD COLUMN EventKey BINARY(8) NULL,
+    ADD UNIQUE INDEX idx_events_key (EventKey);
+
+ALTER TABLE EventArtist
+    ADD COLUMN EventKey BINARY(8) NULL;
@@ -0,0 +1,30 @@
+-- Second step of the event key migration (see 005_event_keys.sql). Run after
+-- "Main migrate-event-keys" has given every event a key; this check returns
+-- 0 rows when it is safe to continue:
+--   SELECT EventID FROM Events WHERE EventKey IS NULL
+--   UNION ALL SELECT EventID FROM EventArtist WHERE EventKey IS NULL;
+-- Makes EventKey the primary key of Events and the event half of the
+-- EventArtist keys, and drops the old EventID columns.
+ALTER TABLE EventArtist
+    DROP FOREIGN KEY fk_event_artist_event;
+
+ALTER TABLE EventArtist
+    DROP PRIMARY KEY,
+    DROP INDEX idx_event_artist_artist,
+    DROP COLUMN EventID,
+    MODIFY EventKey BINARY(8) NOT NULL,
+    ADD PRIMARY KEY (EventKey, Position),
+    ADD INDEX idx_event_artist_artist (ArtistID, EventKey);
+
+ALTER TABLE Events
+    DROP PRIMARY KEY,
+    DROP INDEX idx_events_date_id,
+    DROP INDEX idx_events_key,
+    DROP COLUMN EventID,
+    MODIFY EventKey BINARY(8) NOT NULL,
+    ADD PRIMARY KEY (EventKey),
+    ADD INDEX idx_events_date_key (Date, EventKey);
+
+ALTER TABLE EventArtist
+    ADD CONSTRAINT fk_event_artist_event FOREIGN KEY (EventKey)
+        REFERENCES Events (EventKey) ON DELETE CASCADE;
@@ -0,0 +1,41 @@
+-- Stores each event's price as numbers next to the scraped text, so price
+-- ranges ("under $20") can be answered from an index instead of a full scan
+-- that parses Price as text. New rows are filled in from TicketPrice; the
+-- UPDATE fills in stored rows with the same rules for the formats the
+-- scraper writes ("$25.00", "USD 25.00", "Free", "Free before 11pm, $20 after").
+ALTER TABLE Events
+    ADD COLUMN PriceMinor INT NULL,
+    ADD COLUMN PriceCurrency CHAR(3) NULL,
+    ADD COLUMN IsFree BOOLEAN NOT NULL DEFAULT FALSE,
+    ADD COLUMN IsSoldOut BOOLEAN NOT NULL DEFAULT FALSE,
+    ADD INDEX idx_events_price_date (PriceMinor, Date);
+
+UPDATE Events
+SET IsSoldOut = LOWER(Price) LIKE '%sold out%',
+    -- As in TicketPrice, the first amount with a currency symbol or a whole
+    -- upper-case three-letter code is the price, so "Free before 11pm, $20
+    -- after" is $20 and "From $25" is USD rather than "Fro". Only without one
+    -- does "free" make the event free; otherwise the first bare amount is
+    -- used. The 'c' flag makes the matches case-sensitive, which the column's
+    -- collation would not be otherwise.
+    PriceMinor = CASE
+        WHEN REGEXP_LIKE(Price, '([$\\x{00A3}\\x{20AC}]|\\b[A-Z]{3}\\b)\\s*[0-9][0-9,]*(\\.[0-9]{1,2})?', 'c') THEN
+            ROUND(CAST(REPLACE(REGEXP_SUBSTR(REGEXP_SUBSTR(Price, '([$\\x{00A3}\\x{20AC}]|\\b[A-Z]{3}\\b)\\s*[0-9][0-9,]*(\\.[0-9]{1,2})?', 1, 1, 'c'),
+                '[0-9][0-9,]*(\\.[0-9]{1,2})?'), ',', '') AS DECIMAL(12, 2)) * 100)
+        WHEN LOWER(Price) LIKE '%free%' THEN 0
+        WHEN Price REGEXP '[0-9]' THEN
+            ROUND(CAST(REPLACE(REGEXP_SUBSTR(Price, '[0-9][0-9,]*(\\.[0-9]{1,2})?'), ',', '') AS DECIMAL(12, 2)) * 100)
+    END,
+    PriceCurrency = CASE
+        WHEN REGEXP_LIKE(Price, '([$\\x{00A3}\\x{20AC}]|\\b[A-Z]{3}\\b)\\s*[0-9][0-9,]*(\\.[0-9]{1,2})?', 'c') THEN CASE
+            WHEN REGEXP_LIKE(REGEXP_SUBSTR(Price, '([$\\x{00A3}\\x{20AC}]|\\b[A-Z]{3}\\b)\\s*[0-9][0-9,]*(\\.[0-9]{1,2})?', 1, 1, 'c'), '^[A-Z]{3}', 'c') THEN
+                LEFT(REGEXP_SUBSTR(Price, '([$\\x{00A3}\\x{20AC}]|\\b[A-Z]{3}\\b)\\s*[0-9][0-9,]*(\\.[0-9]{1,2})?', 1, 1, 'c'), 3)
+            WHEN REGEXP_LIKE(REGEXP_SUBSTR(Price, '([$\\x{00A3}\\x{20AC}]|\\b[A-Z]{3}\\b)\\s*[0-9][0-9,]*(\\.[0-9]{1,2})?', 1, 1, 'c'), '^\\x{00A3}') THEN 'GBP'
+            WHEN REGEXP_LIKE(REGEXP_SUBSTR(Price, '([$\\x{00A3}\\x{20AC}]|\\b[A-Z]{3}\\b)\\s*[0-9][0-9,]*(\\.[0-9]{1,2})?', 1, 1, 'c'), '^\\x{20AC}') THEN 'EUR'
+            ELSE 'USD'
+        END
+        WHEN LOWER(Price) LIKE '%free%' OR NOT Price REGEXP '[0-9]' THEN NULL
+        ELSE 'USD'
+    END;
+
+UPDATE Events SET IsFree = TRUE WHERE PriceMinor = 0;
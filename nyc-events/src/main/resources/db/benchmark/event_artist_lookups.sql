@@ -0,0 +1,45 @@
+-- Benchmark of the EventArtist lookups at 1M associations. Run against a
+-- scratch database only: it creates its own copies of the tables.
+--   mysql -u <user> -p <scratch_db> < event_artist_lookups.sql
+-- Both lookups should show an index range scan ("ref" access, a few rows
+-- examined) rather than a full table scan, and run in well under a
+-- millisecond.
+SET SESSION cte_max_recursion_depth = 1000000;
+
+DROP TABLE IF EXISTS EventArtist, Events;
+
+CREATE TABLE Events (
+    EventID VARCHAR(64) NOT NULL PRIMARY KEY,
+    Date DATE NOT NULL
+);
+
+CREATE TABLE EventArtist (
+    EventID VARCHAR(64) NOT NULL,
+    ArtistID VARCHAR(64) NOT NULL,
+    Position SMALLINT UNSIGNED NOT NULL,
+    PRIMARY KEY (EventID, Position),
+    INDEX idx_event_artist_artist (ArtistID, EventID)
+);
+
+-- 200,000 events spread over a year
+INSERT INTO Events (EventID, Date)
+WITH RECURSIVE n (i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM n WHERE i < 199999)
+SELECT LPAD(HEX(i), 8, '0'), CURDATE() + INTERVAL (i % 365) DAY FROM n;
+
+-- 5 artists per event drawn from 50,000 artists: 1,000,000 associations
+INSERT INTO EventArtist (EventID, ArtistID, Position)
+WITH RECURSIVE n (i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM n WHERE i < 999999)
+SELECT LPAD(HEX(i DIV 5), 8, '0'), CONCAT('artist', (i * 7919) % 50000), i % 5 + 1 FROM n;
+
+ANALYZE TABLE Events, EventArtist;
+
+-- Events by artist (the query in DatabaseDAO.findEventIDsByArtist)
+EXPLAIN ANALYZE
+SELECT ea.EventID FROM EventArtist ea JOIN Events e ON e.EventID = ea.EventID
+WHERE ea.ArtistID = 'artist4242' AND e.Date >= CURDATE() ORDER BY e.Date, ea.EventID;
+
+-- Artists by event (the query in DatabaseDAO.findArtistIDsByEvent)
+EXPLAIN ANALYZE
+SELECT ArtistID FROM EventArtist WHERE EventID = '0000a1b2' ORDER BY Position;
+
+DROP TABLE EventArtist, Events;
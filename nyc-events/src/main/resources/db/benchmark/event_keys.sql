@@ -0,0 +1,92 @@
+-- Benchmark of VARCHAR event IDs (32-bit hashes in hex) against BINARY(8)
+-- event keys (64-bit hashes), at 200,000 events and 1M EventArtist rows.
+-- Run against a scratch database only: it creates its own tables.
+--   mysql -u <user> -p <scratch_db> < event_keys.sql
+-- CRC32 and the first 8 bytes of SHA-256 stand in for the 32-bit and 64-bit
+-- hashes: only their width matters here. Compare the collision counts, the
+-- data and index sizes of the two sets of tables, and the lookup times.
+SET SESSION cte_max_recursion_depth = 1000000;
+
+DROP TABLE IF EXISTS EventArtistByID, EventsByID, EventArtistByKey, EventsByKey;
+
+CREATE TABLE EventsByID (
+    EventID VARCHAR(64) NOT NULL PRIMARY KEY,
+    Date DATE NOT NULL,
+    INDEX idx_events_date_id (Date, EventID)
+);
+
+CREATE TABLE EventArtistByID (
+    EventID VARCHAR(64) NOT NULL,
+    ArtistID VARCHAR(64) NOT NULL,
+    Position SMALLINT UNSIGNED NOT NULL,
+    PRIMARY KEY (EventID, Position),
+    INDEX idx_event_artist_artist (ArtistID, EventID)
+);
+
+CREATE TABLE EventsByKey (
+    EventKey BINARY(8) NOT NULL PRIMARY KEY,
+    Date DATE NOT NULL,
+    INDEX idx_events_date_key (Date, EventKey)
+);
+
+CREATE TABLE EventArtistByKey (
+    EventKey BINARY(8) NOT NULL,
+    ArtistID VARCHAR(64) NOT NULL,
+    Position SMALLINT UNSIGNED NOT NULL,
+    PRIMARY KEY (EventKey, Position),
+    INDEX idx_event_artist_artist (ArtistID, EventKey)
+);
+
+-- Collisions among 200,000 events: about 4.7 expected at 32 bits, 0 at 64
+WITH RECURSIVE n (i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM n WHERE i < 199999)
+SELECT COUNT(*) - COUNT(DISTINCT CRC32(CONCAT('event', i))) AS collisions_32_bit,
+       COUNT(*) - COUNT(DISTINCT LEFT(SHA2(CONCAT('event', i), 256), 16)) AS collisions_64_bit
+FROM n;
+
+-- 200,000 events spread over a year; INSERT IGNORE drops the 32-bit
+-- collisions, as the scraper used to
+INSERT IGNORE INTO EventsByID (EventID, Date)
+WITH RECURSIVE n (i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM n WHERE i < 199999)
+SELECT LOWER(HEX(CRC32(CONCAT('event', i)))), CURDATE() + INTERVAL (i % 365) DAY FROM n;
+
+INSERT INTO EventsByKey (EventKey, Date)
+WITH RECURSIVE n (i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM n WHERE i < 199999)
+SELECT UNHEX(LEFT(SHA2(CONCAT('event', i), 256), 16)), CURDATE() + INTERVAL (i % 365) DAY FROM n;
+
+-- 5 artists per event drawn from 50,000 artists: 1,000,000 associations
+INSERT IGNORE INTO EventArtistByID (EventID, ArtistID, Position)
+WITH RECURSIVE n (i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM n WHERE i < 999999)
+SELECT LOWER(HEX(CRC32(CONCAT('event', i DIV 5)))), CONCAT('artist', (i * 7919) % 50000), i % 5 + 1 FROM n;
+
+INSERT INTO EventArtistByKey (EventKey, ArtistID, Position)
+WITH RECURSIVE n (i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM n WHERE i < 999999)
+SELECT UNHEX(LEFT(SHA2(CONCAT('event', i DIV 5), 256), 16)), CONCAT('artist', (i * 7919) % 50000), i % 5 + 1
+FROM n;
+
+ANALYZE TABLE EventsByID, EventArtistByID, EventsByKey, EventArtistByKey;
+
+-- Data (clustered primary key) and secondary index sizes
+SELECT TABLE_NAME, TABLE_ROWS, DATA_LENGTH, INDEX_LENGTH
+FROM information_schema.TABLES
+WHERE TABLE_SCHEMA = DATABASE()
+  AND TABLE_NAME IN ('EventsByID', 'EventArtistByID', 'EventsByKey', 'EventArtistByKey')
+ORDER BY TABLE_NAME;
+
+-- Single event lookups (DatabaseDAO.findEvent)
+EXPLAIN ANALYZE
+SELECT * FROM EventsByID WHERE EventID = LOWER(HEX(CRC32('event4242')));
+
+EXPLAIN ANALYZE
+SELECT * FROM EventsByKey WHERE EventKey = UNHEX(LEFT(SHA2('event4242', 256), 16));
+
+-- Events by artist, joined through the event key
+-- (DatabaseDAO.findEventIDsByArtist)
+EXPLAIN ANALYZE
+SELECT ea.EventID FROM EventArtistByID ea JOIN EventsByID e ON e.EventID = ea.EventID
+WHERE ea.ArtistID = 'artist4242' AND e.Date >= CURDATE() ORDER BY e.Date, ea.EventID;
+
+EXPLAIN ANALYZE
+SELECT LOWER(HEX(ea.EventKey)) FROM EventArtistByKey ea JOIN EventsByKey e ON e.EventKey = ea.EventKey
+WHERE ea.ArtistID = 'artist4242' AND e.Date >= CURDATE() ORDER BY e.Date, ea.EventKey;
+
+DROP TABLE EventArtistByID, EventsByID, EventArtistByKey, EventsByKey;
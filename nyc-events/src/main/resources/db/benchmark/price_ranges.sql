@@ -0,0 +1,62 @@
+-- Benchmark of price and date range queries over the typed PriceMinor and
+-- Date columns against the scraped Price text, at 200,000 events.
+-- Run against a scratch database only: it creates its own table.
+--   mysql -u <user> -p <scratch_db> < price_ranges.sql
+-- The text query has to parse every row, so it shows a full table scan
+-- examining all 200,000 rows; the typed query should show a range scan on
+-- idx_events_price_date examining only the matching rows.
+SET SESSION cte_max_recursion_depth = 1000000;
+
+DROP TABLE IF EXISTS PriceRangeEvents;
+
+CREATE TABLE PriceRangeEvents (
+    EventKey BINARY(8) NOT NULL PRIMARY KEY,
+    Date DATE NOT NULL,
+    Price VARCHAR(64) NULL,
+    PriceMinor INT NULL,
+    PriceCurrency CHAR(3) NULL,
+    IsFree BOOLEAN NOT NULL DEFAULT FALSE,
+    IsSoldOut BOOLEAN NOT NULL DEFAULT FALSE,
+    INDEX idx_events_date_key (Date, EventKey),
+    INDEX idx_events_price_date (PriceMinor, Date)
+);
+
+-- Prices from free to $150 in whole dollars, 1 in 20 free, over a year
+INSERT INTO PriceRangeEvents (EventKey, Date, Price, PriceMinor, PriceCurrency, IsFree)
+WITH RECURSIVE n (i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM n WHERE i < 199999)
+SELECT UNHEX(LEFT(SHA2(CONCAT('event', i), 256), 16)),
+       CURDATE() + INTERVAL (i % 365) DAY,
+       IF(i % 20 = 0, 'Free', CONCAT('$', (i * 37) % 150 + 1, '.00')),
+       IF(i % 20 = 0, 0, ((i * 37) % 150 + 1) * 100),
+       IF(i % 20 = 0, NULL, 'USD'),
+       i % 20 = 0
+FROM n;
+
+ANALYZE TABLE PriceRangeEvents;
+
+-- Events under $20 in the next month, from the text column
+EXPLAIN ANALYZE
+SELECT EventKey, Date, Price FROM PriceRangeEvents
+WHERE (Price = 'Free' OR CAST(REPLACE(Price, '$', '') AS DECIMAL(12, 2)) <= 20)
+  AND Date BETWEEN CURDATE() AND CURDATE() + INTERVAL 30 DAY
+ORDER BY Date, EventKey LIMIT 200;
+
+-- The same from the typed columns (DatabaseDAO.findEventsByPrice)
+EXPLAIN ANALYZE
+SELECT EventKey, Date, Price FROM PriceRangeEvents
+WHERE PriceMinor BETWEEN 0 AND 2000 AND Date BETWEEN CURDATE() AND CURDATE() + INTERVAL 30 DAY
+  AND NOT IsSoldOut AND (PriceCurrency = 'USD' OR IsFree)
+ORDER BY Date, EventKey LIMIT 200;
+
+-- Comparing the text directly is not only slow but wrong: '$100.00' sorts
+-- before '$20.00', so this returns events costing $100 or more
+SELECT COUNT(*) AS wrongly_matched FROM PriceRangeEvents
+WHERE Price <= '$20.00' AND PriceMinor > 2000;
+
+-- A date range on its own (DatabaseDAO.findEventsByDate)
+EXPLAIN ANALYZE
+SELECT EventKey, Date, Price FROM PriceRangeEvents
+WHERE Date BETWEEN CURDATE() + INTERVAL 7 DAY AND CURDATE() + INTERVAL 13 DAY
+ORDER BY Date, EventKey LIMIT 200;
+
+DROP TABLE PriceRangeEvents;
@@ -0,0 +1,89 @@
+package com.caseybrugna.nyc_events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Tests DicePageDataParser against a saved browse page, fixtures/browse-page.html.
+ */
+public class DicePageDataParserTest {
+    private static List<EventCard> cards;
+
+    @BeforeClass
+    public static void parseFixture() throws IOException {
+        try (InputStream in = DicePageDataParserTest.class.getResourceAsStream("/fixtures/browse-page.html")) {
+            cards = DicePageDataParser.parseEventCards(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void readsEachEventOnceAndSkipsEventsWithoutAStartDate() {
+        assertEquals(3, cards.size());
+        assertEquals("Techno Night", cards.get(0).getEventName());
+        assertEquals("New Year's Eve Rooftop", cards.get(1).getEventName());
+        assertEquals("London Calling", cards.get(2).getEventName());
+    }
+
+    @Test
+    public void readsTheFirstCardInFull() {
+        EventCard card = cards.get(0);
+        assertEquals(java.sql.Date.valueOf(LocalDate.of(2027, 1, 9)), card.getDate());
+        assertEquals("Nowadays", card.getLocation());
+        assertEquals("$25.00", card.getPrice());
+        assertEquals("https://dice.fm/event/techno-night-9x2k", card.getLink());
+        assertEquals("DJ Aurora, Basswell", card.getArtistsString());
+    }
+
+    @Test
+    public void keepsTheYearAndLocalDayOfTheStartDate() {
+        // 23:30 in New York is already January 1st in UTC
+        assertEquals(java.sql.Date.valueOf(LocalDate.of(2026, 12, 31)), cards.get(1).getDate());
+        assertEquals(java.sql.Date.valueOf(LocalDate.of(2027, 2, 14)), cards.get(2).getDate());
+    }
+
+    @Test
+    public void fallsBackToTheVenueField() {
+        assertEquals("Elsewhere Rooftop", cards.get(1).getLocation());
+        assertEquals("Public Records", cards.get(2).getLocation());
+    }
+
+    @Test
+    public void formatsFreeAndForeignPrices() {
+        assertEquals("Free", cards.get(1).getPrice());
+        assertEquals("GBP 18.50", cards.get(2).getPrice());
+    }
+
+    @Test
+    public void leavesTheLineupToBeFetchedWhenThePageDataHasNone() {
+        assertNull(cards.get(1).getArtistsString());
+        assertEquals("https://dice.fm/event/nye-rooftop-4m7q", cards.get(1).getLink());
+    }
+
+    @Test
+    public void leavesTheLineupToBeFetchedWhenThePageDataListsOnlyTheTopArtists() {
+        assertNull(cards.get(2).getArtistsString());
+    }
+
+    @Test
+    public void givesTheEventTheCardsDate() {
+        Event event = cards.get(0).toEvent(cards.get(0).getArtistsString());
+        assertEquals(cards.get(0).getDate(), event.getDate());
+        assertEquals(cards.get(0).getEventID(), event.getEventID());
+        assertTrue(EventKey.isEventID(event.getEventID()));
+    }
+
+    @Test
+    public void returnsNoCardsForAPageWithoutPageData() {
+        assertTrue(DicePageDataParser.parseEventCards("<html><body></body></html>").isEmpty());
+    }
+}
@@ -0,0 +1,91 @@
+package com.caseybrugna.nyc_events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests ListingSnapshots against snapshot files in a temporary directory.
+ */
+public class ListingSnapshotsTest {
+    private static final LocalDate TODAY = LocalDate.now(ZoneId.of("America/New_York"));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<EventRecord> eventsToday() {
+        return Arrays.asList(
+                new EventRecord(EventKey.toEventID(1), "Techno Night", TODAY, "Nowadays", "$25.00",
+                        "https://dice.fm/event/techno-night", null, Collections.singletonList("DJ Aurora")),
+                new EventRecord(EventKey.toEventID(2), "Late Set", TODAY, "Elsewhere", "Free",
+                        "https://dice.fm/event/late-set", null, Collections.singletonList("Basswell")));
+    }
+
+    @Test
+    public void keepsTheETagAndLastModifiedOfAnUnchangedListing() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        ListingSnapshots first = new ListingSnapshots(directory);
+        first.generate(eventsToday());
+        ListingSnapshots.Snapshot before = first.get("tonight");
+
+        ListingSnapshots second = new ListingSnapshots(directory);
+        second.generate(eventsToday());
+        ListingSnapshots.Snapshot after = second.get("tonight");
+
+        assertEquals(before.getETag(), after.getETag());
+        assertEquals(before.getGzipETag(), after.getGzipETag());
+        assertEquals(Files.getLastModifiedTime(directory.resolve("tonight.json")).toInstant(),
+                after.getLastModified());
+    }
+
+    @Test
+    public void rendersTonightAgainOnceTheDayHasChanged() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        writeYesterdaysTonight(directory);
+
+        ListingSnapshots snapshots = new ListingSnapshots(directory);
+        snapshots.setEventSource(ListingSnapshotsTest::eventsToday);
+        snapshots.load();
+        ListingSnapshots.Snapshot tonight = snapshots.get("tonight");
+
+        assertNotNull(tonight);
+        String json = new String(tonight.getJson(), StandardCharsets.UTF_8);
+        assertTrue(json, json.contains("\"from\":\"" + TODAY + "\""));
+        assertTrue(json, json.contains("Techno Night"));
+    }
+
+    @Test
+    public void stopsServingTonightOnceTheDayHasChangedWithoutAnEventSource() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        writeYesterdaysTonight(directory);
+
+        ListingSnapshots snapshots = new ListingSnapshots(directory);
+        snapshots.load();
+
+        assertNull(snapshots.get("tonight"));
+    }
+
+    private static void writeYesterdaysTonight(Path directory) throws IOException {
+        LocalDate yesterday = TODAY.minusDays(1);
+        String json = "{\"listing\":\"tonight\",\"from\":\"" + yesterday + "\",\"to\":\"" + yesterday
+                + "\",\"events\":[]}";
+        Files.write(directory.resolve("tonight.json"), json.getBytes(StandardCharsets.UTF_8));
+        // Only its presence matters here
+        Files.write(directory.resolve("tonight.json.gz"), new byte[0]);
+    }
+}
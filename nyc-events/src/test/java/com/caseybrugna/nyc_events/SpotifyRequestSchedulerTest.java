@@ -0,0 +1,117 @@
+package com.caseybrugna.nyc_events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.wrapper.spotify.SpotifyApi;
+import com.wrapper.spotify.exceptions.detailed.TooManyRequestsException;
+import com.wrapper.spotify.model_objects.specification.Artist;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests SpotifyRequestScheduler against a local stub of the Spotify API that
+ * answers the first requests with 429 Too Many Requests.
+ */
+public class SpotifyRequestSchedulerTest {
+    private static final String ARTIST = "{\"id\":\"stub\",\"name\":\"Stub Artist\",\"type\":\"artist\","
+            + "\"popularity\":50,\"genres\":[\"techno\"],\"images\":[],\"uri\":\"spotify:artist:stub\","
+            + "\"external_urls\":{\"spotify\":\"https://open.spotify.com/artist/stub\"}}";
+    private static final String RATE_LIMITED = "{\"error\":{\"status\":429,\"message\":\"API rate limit exceeded\"}}";
+
+    private HttpServer server;
+    private SpotifyApi spotifyApi;
+    private SimpleMeterRegistry metrics;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int throttledRequests;
+    private volatile String retryAfter;
+
+    @Before
+    public void startStubServer() throws IOException {
+        metrics = new SimpleMeterRegistry();
+        Metrics.addRegistry(metrics);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/artists/", exchange -> {
+            if (requests.incrementAndGet() <= throttledRequests) {
+                exchange.getResponseHeaders().add("Retry-After", retryAfter);
+                respond(exchange, 429, RATE_LIMITED);
+            } else {
+                respond(exchange, 200, ARTIST);
+            }
+        });
+        server.start();
+
+        spotifyApi = new SpotifyApi.Builder()
+                .setScheme("http")
+                .setHost("127.0.0.1")
+                .setPort(server.getAddress().getPort())
+                .setAccessToken("stub-token")
+                .build();
+    }
+
+    @After
+    public void stopStubServer() {
+        server.stop(0);
+        Metrics.removeRegistry(metrics);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    public void waitsForRetryAfterAndRetriesUntilTheRequestSucceeds() throws Exception {
+        throttledRequests = 2;
+        retryAfter = "1";
+        SpotifyRequestScheduler scheduler = new SpotifyRequestScheduler(100, 8, 5);
+        int initialLimit = scheduler.getConcurrencyLimit();
+
+        long start = System.nanoTime();
+        Artist artist = scheduler.execute(() -> spotifyApi.getArtist("stub").build().execute());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("Stub Artist", artist.getName());
+        assertEquals(3, requests.get());
+        assertTrue("waited " + elapsedMillis + " ms", elapsedMillis >= 1900);
+        assertTrue(scheduler.getConcurrencyLimit() < initialLimit);
+        assertEquals(2, metrics.counter("spotify.throttled").count(), 0);
+        assertEquals(2, metrics.counter("spotify.retries").count(), 0);
+        assertEquals(3, metrics.counter("spotify.attempts").count(), 0);
+    }
+
+    @Test
+    public void givesUpWhenTheRetriesAreUsedUp() throws Exception {
+        throttledRequests = Integer.MAX_VALUE;
+        retryAfter = "0";
+        SpotifyRequestScheduler scheduler = new SpotifyRequestScheduler(100, 8, 1);
+
+        try {
+            scheduler.execute(() -> spotifyApi.getArtist("stub").build().execute());
+            fail("expected TooManyRequestsException");
+        } catch (TooManyRequestsException e) {
+            assertEquals(2, requests.get());
+            assertEquals(1, scheduler.getConcurrencyLimit());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.caseybrugna.nyc_events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpServer;
+import com.wrapper.spotify.SpotifyApi;
+
+/**
+ * Tests SpotifyTokenManager against a local stub of the Spotify token
+ * endpoint.
+ */
+public class SpotifyTokenManagerTest {
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private final AtomicInteger tokensIssued = new AtomicInteger();
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+    // When set, the endpoint waits briefly and then answers with 500
+    private final AtomicBoolean failing = new AtomicBoolean();
+
+    @Before
+    public void startStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/token", exchange -> {
+            tokenRequests.incrementAndGet();
+            if (failing.get()) {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.sendResponseHeaders(500, -1);
+                exchange.close();
+                return;
+            }
+            // "client:secret" in Base64
+            boolean authorized = "Basic Y2xpZW50OnNlY3JldA==".equals(
+                    exchange.getRequestHeaders().getFirst("Authorization"));
+            String body = authorized
+                    ? "{\"access_token\":\"stub-token-" + tokensIssued.incrementAndGet()
+                            + "\",\"token_type\":\"Bearer\",\"expires_in\":3600}"
+                    : "{\"error\":\"invalid_client\"}";
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(authorized ? 200 : 401, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        // Several threads, so that concurrent token requests are not queued
+        // by the server itself
+        serverThreads = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverThreads);
+        server.start();
+    }
+
+    @After
+    public void stopStubServer() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    private SpotifyTokenManager newTokenManager(SpotifyApi spotifyApi) {
+        URI tokenUri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/api/token");
+        return new SpotifyTokenManager(spotifyApi, new SpotifyRequestScheduler(100, 8, 0), tokenUri);
+    }
+
+    private static SpotifyApi newSpotifyApi() {
+        return new SpotifyApi.Builder()
+                .setClientId("client")
+                .setClientSecret("secret")
+                .build();
+    }
+
+    @Test
+    public void fetchesTheTokenFromTheConfiguredEndpointAndSetsItOnTheClient() {
+        SpotifyApi spotifyApi = newSpotifyApi();
+        SpotifyTokenManager tokenManager = newTokenManager(spotifyApi);
+        try {
+            assertEquals("stub-token-1", tokenManager.getAccessToken());
+            assertEquals("stub-token-1", spotifyApi.getAccessToken());
+            assertFalse(tokenManager.isExpired());
+
+            tokenManager.refreshIfCurrent("stub-token-1");
+            tokenManager.refreshIfCurrent("stub-token-1");
+            assertEquals("stub-token-2", tokenManager.getAccessToken());
+            assertEquals(2, tokensIssued.get());
+        } finally {
+            tokenManager.shutdown();
+        }
+    }
+
+    @Test
+    public void keepsTheTokenOfAnAuthorizedApiAcrossRefreshes() {
+        SpotifyTokenManager tokenManager = newTokenManager(newSpotifyApi());
+        try {
+            SpotifyApi before = tokenManager.getAuthorizedApi();
+            tokenManager.refreshIfCurrent("stub-token-1");
+            SpotifyApi after = tokenManager.getAuthorizedApi();
+
+            assertNotSame(before, after);
+            assertEquals("stub-token-1", before.getAccessToken());
+            assertEquals("stub-token-2", after.getAccessToken());
+        } finally {
+            tokenManager.shutdown();
+        }
+    }
+
+    @Test
+    public void stillRefreshesAfterShutdownWithoutSchedulingAnotherRefresh() {
+        SpotifyTokenManager tokenManager = newTokenManager(newSpotifyApi());
+        tokenManager.shutdown();
+
+        tokenManager.refreshIfCurrent("stub-token-1");
+        assertEquals("stub-token-2", tokenManager.getAccessToken());
+    }
+
+    @Test
+    public void requestsATokenOnceForCallersArrivingDuringAFailingRefresh() throws InterruptedException {
+        SpotifyTokenManager tokenManager = newTokenManager(newSpotifyApi());
+        try {
+            failing.set(true);
+            int requestsBefore = tokenRequests.get();
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> callers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Thread caller = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    tokenManager.refreshIfCurrent("stub-token-1");
+                });
+                caller.start();
+                callers.add(caller);
+            }
+            start.countDown();
+            for (Thread caller : callers) {
+                caller.join();
+            }
+
+            assertEquals(requestsBefore + 1, tokenRequests.get());
+            assertEquals("stub-token-1", tokenManager.getAccessToken());
+        } finally {
+            tokenManager.shutdown();
+        }
+    }
+}